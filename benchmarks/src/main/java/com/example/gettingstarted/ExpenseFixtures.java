@@ -0,0 +1,49 @@
+package com.example.gettingstarted;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Date;
+
+/**
+ * Sample data shared by the benchmarks. Everything is built in memory; no Pod is contacted.
+ */
+final class ExpenseFixtures {
+
+    static final URI IDENTIFIER = URI.create("https://pod.example.com/expenses/expense1");
+
+    private ExpenseFixtures() {
+    }
+
+    static String[] receipts(int count) {
+        final String[] receipts = new String[count];
+        for (int i = 0; i < count; i++) {
+            receipts[i] = "https://pod.example.com/receipts/receipt" + i + ".png";
+        }
+        return receipts;
+    }
+
+    static Expense expense(String[] receipts) {
+        return new Expense(IDENTIFIER,
+                "Example Restaurant",
+                new Date(1_700_000_000_000L),
+                "Team lunch",
+                new BigDecimal("123.45"),
+                "EUR",
+                "Travel and Entertainment",
+                receipts);
+    }
+
+    /**
+     * Configured like the application's mapper: Spring Boot's defaults plus
+     * spring.jackson.serialization.FAIL_ON_EMPTY_BEANS=false.
+     */
+    static ObjectMapper objectMapper() {
+        return new ObjectMapper()
+                .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.gettingstarted;
+
+import com.inrupt.rdf.wrapping.commons.RDFFactory;
+import org.apache.commons.rdf.api.IRI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expense construction through the @JsonCreator constructor, the Expense.Node getters and setters,
+ * and the snapshot-backed Expense getters that replaced per-getter graph lookups.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpenseMappingBenchmark {
+
+    @Param({"0", "10", "100"})
+    int receiptCount;
+
+    String[] receipts;
+    Expense expense;
+    Expense.Node node;
+
+    @Setup
+    public void setUp() {
+        receipts = ExpenseFixtures.receipts(receiptCount);
+        expense = ExpenseFixtures.expense(receipts);
+        final IRI subject = RDFFactory.getInstance().createIRI(ExpenseFixtures.IDENTIFIER.toString());
+        node = expense.new Node(subject, expense.getGraph());
+    }
+
+    @Benchmark
+    public Expense construct() {
+        return ExpenseFixtures.expense(receipts);
+    }
+
+    @Benchmark
+    public void nodeGetters(Blackhole blackhole) {
+        blackhole.consume(node.getRDFType());
+        blackhole.consume(node.getMerchantProvider());
+        blackhole.consume(node.getExpenseDate());
+        blackhole.consume(node.getDescription());
+        blackhole.consume(node.getAmount());
+        blackhole.consume(node.getCurrency());
+        blackhole.consume(node.getCategory());
+        blackhole.consume(node.getReceipts().size());
+    }
+
+    @Benchmark
+    public Object nodeGetMerchantProvider() {
+        return node.getMerchantProvider();
+    }
+
+    @Benchmark
+    public Object nodeGetExpenseDate() {
+        return node.getExpenseDate();
+    }
+
+    @Benchmark
+    public Object nodeGetAmount() {
+        return node.getAmount();
+    }
+
+    @Benchmark
+    public Object nodeGetCategory() {
+        return node.getCategory();
+    }
+
+    @Benchmark
+    public int nodeGetReceipts() {
+        return node.getReceipts().size();
+    }
+
+    @Benchmark
+    public void nodeSetters() {
+        node.setMerchantProvider("Another Restaurant");
+        node.setExpenseDate(new Date(1_700_000_001_000L));
+        node.setDescription("Team dinner");
+        node.setAmount(new BigDecimal("67.89"));
+        node.setCurrency("USD");
+        node.setCategory("Meals");
+    }
+
+    /**
+     * Discards the Snapshot of the benchmark's Expense before every call, outside the measured time.
+     * Per-invocation setup adds timer overhead to each call, so compare the cold getters across receipt counts
+     * rather than against the warm ones to the nanosecond.
+     */
+    @State(Scope.Thread)
+    public static class DiscardedSnapshot {
+
+        @Setup(Level.Invocation)
+        public void discard(ExpenseMappingBenchmark benchmark) {
+            benchmark.expense.setDescription("Team lunch");
+        }
+    }
+
+    /**
+     * All Expense getters on a fresh Snapshot: one decode pass plus cheap field reads.
+     */
+    @Benchmark
+    public void snapshotGettersCold(DiscardedSnapshot discarded, Blackhole blackhole) {
+        readAll(blackhole);
+    }
+
+    /**
+     * All Expense getters on an already decoded Snapshot, as seen by repeated serialization.
+     */
+    @Benchmark
+    public void snapshotGettersWarm(Blackhole blackhole) {
+        readAll(blackhole);
+    }
+
+    private void readAll(Blackhole blackhole) {
+        blackhole.consume(expense.getRDFType());
+        blackhole.consume(expense.getMerchantProvider());
+        blackhole.consume(expense.getExpenseDate());
+        blackhole.consume(expense.getDescription());
+        blackhole.consume(expense.getAmount());
+        blackhole.consume(expense.getCurrency());
+        blackhole.consume(expense.getCategory());
+        blackhole.consume(expense.getReceipts().size());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.gettingstarted;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.rdf.api.RDFSyntax;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of Expense, Turtle serialization as in printExpenseAsTurtle,
+ * and parsing a Turtle body back into Expense(URI, Dataset, Metadata) as the read path does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpenseSerializationBenchmark {
+
+    @Param({"0", "10", "100"})
+    int receiptCount;
+
+    ObjectMapper objectMapper;
+    Expense expense;
+    byte[] json;
+    byte[] turtle;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = ExpenseFixtures.objectMapper();
+        expense = ExpenseFixtures.expense(ExpenseFixtures.receipts(receiptCount));
+        json = objectMapper.writeValueAsBytes(expense);
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        expense.serialize(RDFSyntax.TURTLE, content);
+        turtle = content.toByteArray();
+    }
+
+    /**
+     * Discards the Snapshot of the benchmark's Expense before every call, outside the measured time.
+     */
+    @State(Scope.Thread)
+    public static class DiscardedSnapshot {
+
+        @Setup(Level.Invocation)
+        public void discard(ExpenseSerializationBenchmark benchmark) {
+            benchmark.expense.setDescription("Team lunch");
+        }
+    }
+
+    /**
+     * Each serialization starts from a discarded Snapshot, as for an Expense just read from the Pod.
+     */
+    @Benchmark
+    public byte[] jsonWrite(DiscardedSnapshot discarded) throws IOException {
+        return objectMapper.writeValueAsBytes(expense);
+    }
+
+    @Benchmark
+    public byte[] jsonWriteWarm() throws IOException {
+        return objectMapper.writeValueAsBytes(expense);
+    }
+
+    @Benchmark
+    public Expense jsonRead() throws IOException {
+        return objectMapper.readValue(json, Expense.class);
+    }
+
+    @Benchmark
+    public byte[] turtleWrite() throws IOException {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        expense.serialize(RDFSyntax.TURTLE, content);
+        return content.toByteArray();
+    }
+
+    @Benchmark
+    public Expense turtleRead() {
+        return new Expense(ExpenseFixtures.IDENTIFIER, ExpenseCache.parse(ExpenseFixtures.IDENTIFIER, turtle), null);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.gettingstarted;
+
+import com.example.gettingstarted.loadtest.StubSolidPod;
+import com.inrupt.client.Request;
+import com.inrupt.client.Response;
+import com.inrupt.client.solid.SolidSyncClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads through SolidSyncClient from a local StubSolidPod, sixteen threads at a time, with the classpath
+ * default transport and with the pooled PodTransport (as configured in application.properties).
+ * The stub adds a millisecond of latency per request, so the numbers reflect connection handling, not the stub.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class PodTransportBenchmark {
+
+    @Param({"default", "pooled"})
+    String transport;
+
+    StubSolidPod pod;
+    PodTransport podTransport;
+    SolidSyncClient client;
+    Request request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pod = new StubSolidPod(0, 1, 0, 64);
+        pod.start();
+        podTransport = new PodTransport(new PodTransport.Settings(transport.equals("pooled"), 256, 64, 32,
+                Duration.ofMinutes(5), Duration.ofSeconds(5), Duration.ofSeconds(30), true, true), null, null);
+        client = SolidSyncClient.getClientBuilder().client(podTransport.client()).build();
+        request = Request.newBuilder(URI.create(pod.getBase() + "/profile/card")).header("Accept", "text/turtle").GET().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        podTransport.close();
+        pod.stop();
+    }
+
+    @Benchmark
+    public int read() {
+        final Response<byte[]> response = client.send(request, Response.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) throw new IllegalStateException("Unexpected status " + response.statusCode());
+        return response.body().length;
+    }
+}
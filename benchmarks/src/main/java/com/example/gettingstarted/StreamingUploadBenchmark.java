@@ -0,0 +1,224 @@
+package com.example.gettingstarted;
+
+import com.example.gettingstarted.loadtest.StubSolidPod;
+import com.inrupt.client.openid.OpenIdSession;
+import com.inrupt.client.solid.SolidSyncClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receipt uploads through the ReceiptUploader, over the pooled OkHttp PodTransport, to a local StubSolidPod
+ * that reads and counts the bytes but does not keep them, so the heap measured is the client's.
+ * <p>
+ * The streamed variant passes the body stream to the ReceiptUploader, as the streaming upload endpoints do;
+ * the buffered one reads it into one array first, as a multipart upload does. Besides the GC profiler's
+ * allocation per operation, each trial prints the peak heap in use after a collection while it ran, which
+ * approximates the most memory held live at once: the streamed upload's stays flat as the receipt grows, the
+ * buffered one's grows with it. Run with a small heap (e.g. -jvmArgs -Xmx48m) to see the buffered variant fail
+ * for the largest size while the streamed one does not.
+ * <p>
+ * Setup first checks that the OkHttp adapter streams the InputStreamBodyPublisher: the body's second chunk is
+ * only handed out once the stub has received bytes of the first, which never happens if the adapter collects
+ * the whole body before sending it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StreamingUploadBenchmark {
+
+    @Param({"1", "16", "64"})
+    int megabytes;
+
+    StubSolidPod pod;
+    PodTransport podTransport;
+    Path indexFile;
+    ReceiptUploader receiptUploader;
+    HeapSampler heap;
+    long uploads;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pod = new StubSolidPod(0, 0, 0, 16);
+        pod.setKeepBinaryBodies(false);
+        pod.start();
+        podTransport = new PodTransport(new PodTransport.Settings(true, 64, 16, 16,
+                Duration.ofMinutes(5), Duration.ofSeconds(5), Duration.ofSeconds(60), true, true), null, null);
+        final SolidSyncClient client = SolidSyncClient.getClientBuilder().client(podTransport.client()).build()
+                .session(OpenIdSession.ofClientCredentials(URI.create(pod.getBase()), "stub-client", "stub-secret",
+                        "client_secret_basic"));
+        final PodMetrics podMetrics = new PodMetrics(new SimpleMeterRegistry(), false);
+        indexFile = Files.createTempFile("receipt-index", ".log");
+        Files.delete(indexFile);
+        final ReceiptIndex receiptIndex = new ReceiptIndex(client, null, podMetrics, indexFile.toString(), "");
+        receiptIndex.load();
+        receiptUploader = new ReceiptUploader(client, receiptIndex, podMetrics);
+
+        verifyStreaming();
+        heap = new HeapSampler();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        heap.stop();
+        System.out.println(String.format("StreamingUploadBenchmark:: %d MB receipts, peak heap used %d MB, after GC %d MB",
+                megabytes, heap.peakUsed.get() / (1024 * 1024), heap.peakAfterGc.get() / (1024 * 1024)));
+        podTransport.close();
+        pod.stop();
+        Files.deleteIfExists(indexFile);
+    }
+
+    @Benchmark
+    public URI streamed() {
+        final long size = megabytes * 1024L * 1024L;
+        return receiptUploader.upload(nextDestination(), "image/png", size, new SyntheticInputStream(size));
+    }
+
+    @Benchmark
+    public URI buffered() throws IOException {
+        final long size = megabytes * 1024L * 1024L;
+        final byte[] body;
+        try (InputStream input = new SyntheticInputStream(size)) {
+            body = input.readAllBytes();
+        }
+        return receiptUploader.upload(nextDestination(), "image/png", body.length, new ByteArrayInputStream(body));
+    }
+
+    private URI nextDestination() {
+        return URI.create(pod.getBase() + "/receipts/" + megabytes + "-" + ++uploads + ".png");
+    }
+
+    private void verifyStreaming() {
+        final long chunk = InputStreamBodyPublisher.DEFAULT_CHUNK_SIZE;
+        final long receivedBefore = pod.getBytesReceived();
+        final InputStream gated = new SyntheticInputStream(4 * chunk) {
+            private long handedOut;
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (handedOut >= chunk) awaitFirstBytes();
+                final int count = super.read(buffer, offset, (int) Math.min(length, chunk));
+                if (count > 0) handedOut += count;
+                return count;
+            }
+
+            private void awaitFirstBytes() throws IOException {
+                final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (pod.getBytesReceived() == receivedBefore) {
+                    if (System.nanoTime() > deadline) {
+                        throw new IOException("Nothing was sent before the body was read past its first chunk");
+                    }
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+            }
+        };
+        try {
+            receiptUploader.upload(URI.create(pod.getBase() + "/receipts/streaming-check.png"), "image/png",
+                    4 * chunk, gated);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("The OkHttp adapter does not stream request bodies", e);
+        }
+    }
+
+    /**
+     * Samples the heap every millisecond and keeps the highest use seen, and the highest left after a collection.
+     */
+    private static final class HeapSampler {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported())
+                .toList();
+        final AtomicLong peakUsed = new AtomicLong();
+        final AtomicLong peakAfterGc = new AtomicLong();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        HeapSampler() {
+            thread = new Thread(() -> {
+                while (running) {
+                    peakUsed.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    long afterGc = 0;
+                    for (MemoryPoolMXBean pool : pools) {
+                        final MemoryUsage usage = pool.getCollectionUsage();
+                        if (usage != null) afterGc += usage.getUsed();
+                    }
+                    peakAfterGc.accumulateAndGet(afterGc, Math::max);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "heap-sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() {
+            running = false;
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * A stream of the given length that never holds its content in memory.
+     */
+    private static class SyntheticInputStream extends InputStream {
+        private long remaining;
+
+        SyntheticInputStream(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) return -1;
+            remaining--;
+            return 'r';
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) return -1;
+            final int count = (int) Math.min(length, remaining);
+            remaining -= count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.gettingstarted.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the running application with a weighted mix of endpoint calls at a fixed concurrency
+ * and reports throughput and p50/p99/p999 latency per endpoint.
+ * <p>
+ * Before measuring, it seeds the Pod with expenses through the application itself. Point the application at a
+ * StubSolidPod (MY_SOLID_IDP=http://localhost:8090) to keep everything on localhost. Use --prefix=/api/async
+ * to measure the non-blocking controller against the default /api one.
+ * <p>
+ * With --compare=true it runs the same mix against /api and then /api/async, each with its own seeded
+ * container, and prints throughput and p99 side by side. The difference shows once the Pod is slow and the
+ * concurrency exceeds the application's worker threads, e.g. with the stub at --latency=200 and the application
+ * started with --server.tomcat.threads.max=32 and --concurrency=256.
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.gettingstarted.loadtest.LoadDriver \
+ *     --target=http://localhost:8080 --pod=http://localhost:8090 --concurrency=64 --duration=30 \
+ *     --mix=get:70,update:20,create:10
+ * </pre>
+ */
+public final class LoadDriver {
+
+    private static final List<String> OPERATIONS = List.of("get", "create", "update", "delete", "pods", "list");
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final String api;
+    private final String pod;
+    private final String container;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentLinkedQueue<String> created = new ConcurrentLinkedQueue<>();
+    private final List<String> seeded = new ArrayList<>();
+
+    LoadDriver(String target, String prefix, String pod) {
+        this.api = target + prefix;
+        this.pod = pod;
+        this.container = pod + "/expenses/load-" + System.currentTimeMillis() + "/";
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = LoadOptions.parse(args);
+        final LoadDriver driver = new LoadDriver(
+                options.getOrDefault("target", "http://localhost:8080"),
+                options.getOrDefault("prefix", "/api"),
+                options.getOrDefault("pod", "http://localhost:8090"));
+        final int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        final Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        final Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        final Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "get:70,update:20,create:10"));
+        final int expenses = Integer.parseInt(options.getOrDefault("expenses", "100"));
+
+        if (!Boolean.parseBoolean(options.getOrDefault("compare", "false"))) {
+            driver.seed(expenses);
+            System.out.println(String.format("LoadDriver:: %s, concurrency %d, warmup %ds, duration %ds, mix %s",
+                    driver.api, concurrency, warmup.toSeconds(), duration.toSeconds(), mix));
+            driver.run(concurrency, warmup, duration, mix);
+            return;
+        }
+
+        final Map<String, Map<String, Recorder>> results = new LinkedHashMap<>();
+        for (String prefix : List.of("/api", "/api/async")) {
+            final LoadDriver compared = new LoadDriver(options.getOrDefault("target", "http://localhost:8080"), prefix,
+                    options.getOrDefault("pod", "http://localhost:8090"));
+            compared.seed(expenses);
+            System.out.println(String.format("LoadDriver:: %s, concurrency %d, warmup %ds, duration %ds, mix %s",
+                    compared.api, concurrency, warmup.toSeconds(), duration.toSeconds(), mix));
+            results.put(prefix, compared.run(concurrency, warmup, duration, mix));
+        }
+        compare(results.get("/api"), results.get("/api/async"), duration);
+    }
+
+    void seed(int count) throws IOException, InterruptedException {
+        for (int i = 0; i < count; i++) {
+            final String identifier = container + "seed-" + i;
+            final HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(api + "/expenses/create"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(expenseJson(identifier, i))));
+            if (failed(response)) {
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + " for " + identifier);
+            }
+            seeded.add(identifier);
+        }
+    }
+
+    Map<String, Recorder> run(int concurrency, Duration warmup, Duration duration, Map<String, Integer> mix) throws InterruptedException {
+        final long start = System.nanoTime();
+        final long measureFrom = start + warmup.toNanos();
+        final long end = measureFrom + duration.toNanos();
+        final Map<String, Recorder> totals = new LinkedHashMap<>();
+        final List<Map<String, Recorder>> perThread = new ArrayList<>();
+        final List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < concurrency; t++) {
+            final Map<String, Recorder> recorders = new LinkedHashMap<>();
+            mix.keySet().forEach(operation -> recorders.put(operation, new Recorder()));
+            perThread.add(recorders);
+            final Thread worker = new Thread(() -> work(recorders, mix, measureFrom, end), "load-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        mix.keySet().forEach(operation -> totals.put(operation, new Recorder()));
+        perThread.forEach(recorders -> recorders.forEach((operation, recorder) -> totals.get(operation).addAll(recorder)));
+        report(totals, duration);
+        return totals;
+    }
+
+    private void work(Map<String, Recorder> recorders, Map<String, Integer> mix, long measureFrom, long end) {
+        final int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        while (true) {
+            final long before = System.nanoTime();
+            if (before >= end) return;
+            String operation = pick(mix, totalWeight);
+            final String deleted = operation.equals("delete") ? created.poll() : null;
+            // Nothing created yet to delete: create instead, and record it as a create (if creates are measured).
+            if (operation.equals("delete") && deleted == null) operation = "create";
+            boolean ok;
+            try {
+                ok = call(operation, deleted);
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            final long after = System.nanoTime();
+            final Recorder recorder = recorders.get(operation);
+            if (before >= measureFrom && recorder != null) {
+                recorder.record(after - before, ok);
+            }
+        }
+    }
+
+    /**
+     * @param deleted the created Expense to delete, for a delete
+     */
+    private boolean call(String operation, String deleted) throws IOException, InterruptedException {
+        return switch (operation) {
+            case "get" -> !failed(send(HttpRequest.newBuilder(URI.create(api + "/expenses/get?resourceURL=" + encode(randomSeeded()))).GET()));
+            case "create" -> {
+                final String identifier = container + "created-" + sequence.incrementAndGet();
+                final boolean ok = !failed(send(HttpRequest.newBuilder(URI.create(api + "/expenses/create"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(expenseJson(identifier, (int) sequence.get())))));
+                if (ok) created.add(identifier);
+                yield ok;
+            }
+            case "update" -> !failed(send(HttpRequest.newBuilder(URI.create(api + "/expenses/update"))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(expenseJson(randomSeeded(), ThreadLocalRandom.current().nextInt(1000))))));
+            case "delete" -> {
+                final HttpResponse<String> response = send(HttpRequest.newBuilder(
+                        URI.create(api + "/expenses/delete?resourceURL=" + encode(deleted))).DELETE());
+                yield response.statusCode() < 400;
+            }
+            case "pods" -> !failed(send(HttpRequest.newBuilder(
+                    URI.create(api + "/pods?webid=" + encode(pod + "/profile/card#me"))).GET()));
+            case "list" -> !failed(send(HttpRequest.newBuilder(
+                    URI.create(api.replace("/api/async", "/api") + "/expenses?limit=50&container=" + encode(container))).GET()));
+            default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        };
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return http.send(request.timeout(Duration.ofSeconds(60)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * The application answers errors with 200 and an empty (null) body, so both count as failures.
+     */
+    private static boolean failed(HttpResponse<String> response) {
+        return response.statusCode() >= 400 || response.body() == null || response.body().isBlank()
+                || response.body().equals("null");
+    }
+
+    private String randomSeeded() {
+        return seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+    }
+
+    private static String pick(Map<String, Integer> mix, int totalWeight) {
+        int choice = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            choice -= entry.getValue();
+            if (choice < 0) return entry.getKey();
+        }
+        throw new IllegalStateException("Empty mix");
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        final Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            final String[] weight = part.split(":");
+            if (!OPERATIONS.contains(weight[0])) {
+                throw new IllegalArgumentException("Unknown operation " + weight[0] + "; expected one of " + OPERATIONS);
+            }
+            weights.put(weight[0], Integer.parseInt(weight[1]));
+        }
+        return weights;
+    }
+
+    private static String expenseJson(String identifier, int n) {
+        return "{\"identifier\":\"" + identifier + "\","
+                + "\"merchantProvider\":\"Merchant " + (n % 20) + "\","
+                + "\"expenseDate\":" + (1_700_000_000_000L + n * 86_400_000L) + ","
+                + "\"description\":\"Load test expense " + n + "\","
+                + "\"amount\":" + (10 + n % 500) + ".25,"
+                + "\"currency\":\"" + (n % 3 == 0 ? "USD" : "EUR") + "\","
+                + "\"category\":\"" + (n % 2 == 0 ? "Travel" : "Meals") + "\","
+                + "\"receipts\":[]}";
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void report(Map<String, Recorder> totals, Duration duration) {
+        System.out.println(String.format("%-8s %10s %8s %10s %10s %10s %10s",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+        totals.forEach((operation, recorder) -> {
+            final long[] latencies = recorder.sorted();
+            System.out.println(String.format("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f",
+                    operation, latencies.length, recorder.errors,
+                    latencies.length / (double) duration.toSeconds(),
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999)));
+        });
+    }
+
+    private static void compare(Map<String, Recorder> blocking, Map<String, Recorder> async, Duration duration) {
+        System.out.println(String.format("%-8s %14s %14s %14s %14s",
+                "endpoint", "blocking req/s", "async req/s", "blocking p99", "async p99"));
+        blocking.forEach((operation, recorder) -> {
+            final long[] blockingLatencies = recorder.sorted();
+            final long[] asyncLatencies = async.get(operation).sorted();
+            System.out.println(String.format("%-8s %14.1f %14.1f %14.2f %14.2f", operation,
+                    blockingLatencies.length / (double) duration.toSeconds(),
+                    asyncLatencies.length / (double) duration.toSeconds(),
+                    percentile(blockingLatencies, 0.99), percentile(asyncLatencies, 0.99)));
+        });
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) return Double.NaN;
+        final int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * Per-thread latency samples in nanoseconds; merged once the run is over.
+     */
+    private static final class Recorder {
+        private long[] samples = new long[1024];
+        private int size;
+        private long errors;
+
+        void record(long nanos, boolean ok) {
+            if (size == samples.length) samples = Arrays.copyOf(samples, size * 2);
+            samples[size++] = nanos;
+            if (!ok) errors++;
+        }
+
+        void addAll(Recorder other) {
+            for (int i = 0; i < other.size; i++) {
+                record(other.samples[i], true);
+            }
+            errors += other.errors;
+        }
+
+        long[] sorted() {
+            final long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
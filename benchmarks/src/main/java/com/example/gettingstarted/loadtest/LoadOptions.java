@@ -0,0 +1,25 @@
+package com.example.gettingstarted.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses {@code --key=value} command line options for the load-test tools.
+ */
+final class LoadOptions {
+
+    private LoadOptions() {
+    }
+
+    static Map<String, String> parse(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got " + arg);
+            }
+            final int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.gettingstarted.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.update.UpdateAction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for a Solid Pod and its identity provider, for load tests on localhost.
+ * <p>
+ * Implements the subset the application uses: GET/PUT/POST/DELETE of Turtle and binary resources,
+ * SPARQL Update PATCH of Turtle resources (applied with Jena),
+ * container listings with ldp:contains, ETags with If-Match/If-None-Match (304 and 412), 401 for
+ * unauthenticated requests, 403 under /forbidden/ and 404 for missing resources. It also serves an
+ * OpenID configuration and a client-credentials token endpoint, so OpenIdSession.ofClientCredentials
+ * works against it, and a public WebID profile at /profile/card#me listing the root as storage.
+ * <p>
+ * Every response is delayed by the configured latency plus a random jitter. Resources live in memory.
+ * Tokens expire after --token-ttl seconds and each token request takes an extra --token-latency milliseconds,
+ * to exercise token rollover; the number of tokens issued is printed as they are issued.
+ * A --fail-rate fraction of resource requests is answered with 503, to exercise the application's circuit breaker.
+ * With setKeepBinaryBodies(false), non-RDF bodies are read and counted but not kept, so upload benchmarks in the
+ * same JVM measure the client's memory use and not the stub's.
+ * Latency, jitter and fail rate can be changed while running with POST /_stub/faults?latency=&jitter=&failRate=,
+ * e.g. to slow the Pod down in the middle of a load test.
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.gettingstarted.loadtest.StubSolidPod --port=8090 --latency=20 --jitter=5
+ * curl -X POST "http://localhost:8090/_stub/faults?latency=500&amp;failRate=0.3"
+ * </pre>
+ */
+public final class StubSolidPod {
+
+    private static final String LDP = "http://www.w3.org/ns/ldp#";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String base;
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double failRate;
+    private volatile boolean keepBinaryBodies = true;
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final long tokenTtlSeconds;
+    private final long tokenLatencyMillis;
+    private final AtomicLong tokensIssued = new AtomicLong();
+    private final ConcurrentMap<String, Resource> resources = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    private record Resource(byte[] body, String contentType, String etag) {
+    }
+
+    public StubSolidPod(int port, long latencyMillis, long jitterMillis, int threads) throws IOException {
+        this(port, latencyMillis, jitterMillis, threads, 300, 0);
+    }
+
+    public StubSolidPod(int port, long latencyMillis, long jitterMillis, int threads,
+                        long tokenTtlSeconds, long tokenLatencyMillis) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.base = "http://localhost:" + server.getAddress().getPort();
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.tokenTtlSeconds = tokenTtlSeconds;
+        this.tokenLatencyMillis = tokenLatencyMillis;
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        put("/profile/card", ("<" + base + "/profile/card#me> <http://www.w3.org/ns/pim/space#storage> <" + base + "/> .\n")
+                .getBytes(StandardCharsets.UTF_8), "text/turtle");
+    }
+
+    public static void main(String[] args) throws IOException {
+        final Map<String, String> options = LoadOptions.parse(args);
+        final StubSolidPod pod = new StubSolidPod(
+                Integer.parseInt(options.getOrDefault("port", "8090")),
+                Long.parseLong(options.getOrDefault("latency", "0")),
+                Long.parseLong(options.getOrDefault("jitter", "0")),
+                Integer.parseInt(options.getOrDefault("threads", "200")),
+                Long.parseLong(options.getOrDefault("token-ttl", "300")),
+                Long.parseLong(options.getOrDefault("token-latency", "0")));
+        pod.setFaults(pod.latencyMillis, pod.jitterMillis, Double.parseDouble(options.getOrDefault("fail-rate", "0")));
+        pod.start();
+        System.out.println("StubSolidPod:: listening on " + pod.getBase());
+        System.out.println("StubSolidPod:: export MY_SOLID_IDP=" + pod.getBase());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getBase() {
+        return base;
+    }
+
+    /**
+     * With false, PUT bodies other than Turtle are stored empty; their bytes are still read and counted.
+     */
+    public void setKeepBinaryBodies(boolean keepBinaryBodies) {
+        this.keepBinaryBodies = keepBinaryBodies;
+    }
+
+    /**
+     * The number of request body bytes read so far, counted as they arrive.
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Changes the latency, jitter and fraction of resource requests failed with 503, for requests from now on.
+     */
+    public void setFaults(long latencyMillis, long jitterMillis, double failRate) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.failRate = failRate;
+        System.out.println(String.format("StubSolidPod:: latency %dms, jitter %dms, fail rate %.2f", latencyMillis, jitterMillis, failRate));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            delay();
+            final String path = exchange.getRequestURI().getPath();
+            final String method = exchange.getRequestMethod();
+
+            if (path.equals("/_stub/faults") && method.equals("POST")) {
+                faults(exchange);
+            } else if (path.equals("/.well-known/openid-configuration")) {
+                openIdConfiguration(exchange);
+            } else if (path.equals("/token") && method.equals("POST")) {
+                token(exchange);
+            } else if (path.equals("/profile/card") && method.equals("GET")) {
+                get(exchange, path);
+            } else if (exchange.getRequestHeaders().getFirst("Authorization") == null) {
+                exchange.getResponseHeaders().add("WWW-Authenticate", "Bearer realm=\"" + base + "\"");
+                send(exchange, 401, null, null);
+            } else if (path.startsWith("/forbidden/")) {
+                send(exchange, 403, null, null);
+            } else if (failRate > 0 && ThreadLocalRandom.current().nextDouble() < failRate) {
+                send(exchange, 503, null, null);
+            } else {
+                switch (method) {
+                    case "GET", "HEAD" -> get(exchange, path);
+                    case "PUT" -> put(exchange, path);
+                    case "POST" -> post(exchange, path);
+                    case "PATCH" -> patch(exchange, path);
+                    case "DELETE" -> delete(exchange, path);
+                    default -> send(exchange, 405, null, null);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void delay() {
+        final long jitter = jitterMillis;
+        sleep(latencyMillis + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0));
+    }
+
+    /**
+     * POST /_stub/faults?latency=&jitter=&failRate= changes the given settings and keeps the others.
+     */
+    private void faults(HttpExchange exchange) throws IOException {
+        final Map<String, String> query = new HashMap<>();
+        final String raw = exchange.getRequestURI().getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                final int eq = pair.indexOf('=');
+                if (eq > 0) query.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        try {
+            setFaults(query.containsKey("latency") ? Long.parseLong(query.get("latency")) : latencyMillis,
+                    query.containsKey("jitter") ? Long.parseLong(query.get("jitter")) : jitterMillis,
+                    query.containsKey("failRate") ? Double.parseDouble(query.get("failRate")) : failRate);
+        } catch (NumberFormatException e) {
+            send(exchange, 400, null, null);
+            return;
+        }
+        send(exchange, 204, null, null);
+    }
+
+    private static void sleep(long delay) {
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void openIdConfiguration(HttpExchange exchange) throws IOException {
+        final String json = "{\"issuer\":\"" + base + "\","
+                + "\"token_endpoint\":\"" + base + "/token\","
+                + "\"authorization_endpoint\":\"" + base + "/authorize\","
+                + "\"jwks_uri\":\"" + base + "/jwks\","
+                + "\"grant_types_supported\":[\"client_credentials\"],"
+                + "\"token_endpoint_auth_methods_supported\":[\"client_secret_basic\",\"client_secret_post\"],"
+                + "\"id_token_signing_alg_values_supported\":[\"none\"]}";
+        send(exchange, 200, json.getBytes(StandardCharsets.UTF_8), "application/json");
+    }
+
+    /**
+     * Issues an unsigned JWT for any client; the stub performs no credential checks.
+     */
+    private void token(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        sleep(tokenLatencyMillis);
+        final long now = Instant.now().getEpochSecond();
+        final long expiresIn = tokenTtlSeconds;
+        System.out.println(String.format("StubSolidPod:: issued token %d, expires in %ds", tokensIssued.incrementAndGet(), expiresIn));
+        final String webId = base + "/profile/card#me";
+        final String claims = "{\"iss\":\"" + base + "\",\"sub\":\"" + webId + "\",\"webid\":\"" + webId + "\","
+                + "\"aud\":\"solid\",\"azp\":\"stub-client\",\"iat\":" + now + ",\"exp\":" + (now + expiresIn) + "}";
+        final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        final String jwt = encoder.encodeToString("{\"alg\":\"none\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".";
+        final String json = "{\"access_token\":\"" + jwt + "\",\"id_token\":\"" + jwt + "\","
+                + "\"token_type\":\"Bearer\",\"expires_in\":" + expiresIn + "}";
+        exchange.getResponseHeaders().add("Cache-Control", "no-store");
+        send(exchange, 200, json.getBytes(StandardCharsets.UTF_8), "application/json");
+    }
+
+    private void get(HttpExchange exchange, String path) throws IOException {
+        final Resource resource = path.endsWith("/") ? listing(path) : resources.get(path);
+        if (resource == null) {
+            send(exchange, 404, null, null);
+            return;
+        }
+        exchange.getResponseHeaders().add("ETag", resource.etag());
+        exchange.getResponseHeaders().add("Link", "<" + LDP + (path.endsWith("/") ? "BasicContainer" : "Resource") + ">; rel=\"type\"");
+        if (resource.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            send(exchange, 304, null, null);
+            return;
+        }
+        send(exchange, 200, exchange.getRequestMethod().equals("HEAD") ? null : resource.body(), resource.contentType());
+    }
+
+    private void put(HttpExchange exchange, String path) throws IOException {
+        final byte[] body = readBody(exchange, keepBinaryBodies || contentType(exchange).startsWith("text/turtle"));
+        final int status;
+        synchronized (resources) {
+            final Resource existing = resources.get(path);
+            if (!preconditionsHold(exchange, existing)) {
+                send(exchange, 412, null, null);
+                return;
+            }
+            status = existing == null ? 201 : 204;
+            put(path, body, contentType(exchange));
+        }
+        exchange.getResponseHeaders().add("ETag", resources.get(path).etag());
+        send(exchange, status, null, null);
+    }
+
+    private void post(HttpExchange exchange, String path) throws IOException {
+        if (!path.endsWith("/")) {
+            send(exchange, 405, null, null);
+            return;
+        }
+        final String slug = exchange.getRequestHeaders().getFirst("Slug");
+        final String child = path + (slug == null || slug.isBlank() ? Long.toString(versions.incrementAndGet()) : slug);
+        final byte[] body = readBody(exchange);
+        synchronized (resources) {
+            if (resources.containsKey(child)) {
+                send(exchange, 412, null, null);
+                return;
+            }
+            put(child, body, contentType(exchange));
+        }
+        exchange.getResponseHeaders().add("Location", base + child);
+        send(exchange, 201, null, null);
+    }
+
+    private void patch(HttpExchange exchange, String path) throws IOException {
+        if (!contentType(exchange).startsWith("application/sparql-update")) {
+            send(exchange, 415, null, null);
+            return;
+        }
+        final String update = new String(readBody(exchange), StandardCharsets.UTF_8);
+        final int status;
+        synchronized (resources) {
+            final Resource existing = resources.get(path);
+            if (!preconditionsHold(exchange, existing)) {
+                send(exchange, 412, null, null);
+                return;
+            }
+            final Model model = ModelFactory.createDefaultModel();
+            if (existing != null) {
+                RDFParser.create().source(new ByteArrayInputStream(existing.body())).lang(Lang.TURTLE)
+                        .base(base + path).parse(model);
+            }
+            try {
+                UpdateAction.parseExecute(update, model);
+            } catch (RuntimeException e) {
+                send(exchange, 400, null, null);
+                return;
+            }
+            final ByteArrayOutputStream turtle = new ByteArrayOutputStream();
+            RDFDataMgr.write(turtle, model, Lang.TURTLE);
+            status = existing == null ? 201 : 204;
+            put(path, turtle.toByteArray(), "text/turtle");
+        }
+        exchange.getResponseHeaders().add("ETag", resources.get(path).etag());
+        send(exchange, status, null, null);
+    }
+
+    private void delete(HttpExchange exchange, String path) throws IOException {
+        synchronized (resources) {
+            final Resource existing = resources.get(path);
+            if (existing == null) {
+                send(exchange, 404, null, null);
+                return;
+            }
+            if (!preconditionsHold(exchange, existing)) {
+                send(exchange, 412, null, null);
+                return;
+            }
+            resources.remove(path);
+        }
+        send(exchange, 204, null, null);
+    }
+
+    private boolean preconditionsHold(HttpExchange exchange, Resource existing) {
+        final String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifMatch != null && (existing == null || !(ifMatch.equals("*") || ifMatch.equals(existing.etag())))) return false;
+        return ifNoneMatch == null || existing == null || !(ifNoneMatch.equals("*") || ifNoneMatch.equals(existing.etag()));
+    }
+
+    private void put(String path, byte[] body, String contentType) {
+        resources.put(path, new Resource(body, contentType, "\"" + versions.incrementAndGet() + "\""));
+    }
+
+    /**
+     * Builds the container's Turtle on the fly from the stored paths directly below it.
+     */
+    private Resource listing(String path) {
+        final TreeSet<String> children = new TreeSet<>();
+        for (String stored : resources.keySet()) {
+            if (stored.startsWith(path) && stored.length() > path.length()) {
+                final String rest = stored.substring(path.length());
+                final int slash = rest.indexOf('/');
+                children.add(path + (slash < 0 ? rest : rest.substring(0, slash + 1)));
+            }
+        }
+        if (children.isEmpty() && !path.equals("/")) return null;
+        final StringBuilder turtle = new StringBuilder("<" + base + path + "> a <" + LDP + "BasicContainer>");
+        for (String child : children) {
+            turtle.append(" ;\n    <").append(LDP).append("contains> <").append(base).append(child).append(">");
+        }
+        turtle.append(" .\n");
+        return new Resource(turtle.toString().getBytes(StandardCharsets.UTF_8), "text/turtle",
+                "\"c" + children.hashCode() + "\"");
+    }
+
+    private static String contentType(HttpExchange exchange) {
+        final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        return contentType == null ? "application/octet-stream" : contentType;
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        return readBody(exchange, true);
+    }
+
+    private byte[] readBody(HttpExchange exchange, boolean keep) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            final ByteArrayOutputStream body = keep ? new ByteArrayOutputStream() : null;
+            final byte[] chunk = new byte[64 * 1024];
+            for (int read; (read = in.read(chunk)) >= 0; ) {
+                bytesReceived.addAndGet(read);
+                if (body != null) body.write(chunk, 0, read);
+            }
+            return body == null ? new byte[0] : body.toByteArray();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body, String contentType) throws IOException {
+        if (contentType != null) exchange.getResponseHeaders().add("Content-Type", contentType);
+        if (body == null || body.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.solid.PreconditionFailedException;
+import com.inrupt.client.solid.SolidClient;
+import com.inrupt.client.solid.SolidClientException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Non-blocking variant of the ExpenseController endpoints, served under /api/async.
+ * <p>
+ * Each handler returns a CompletableFuture backed by the asynchronous SolidClient, so the Tomcat
+ * worker thread is released while the Pod request is in flight and Spring MVC completes the
+ * response when the future does. Errors are logged and answered with null, as in ExpenseController.
+ * Updates go through the same WriteBehindQueue, so with expenses.write-behind.enabled an update without If-Match is
+ * journaled and acknowledged at once, and reads return the update still waiting to be written. Other updates are
+ * written with the ExpensePatcher, as in ExpenseController; as it blocks, it runs on a pool of
+ * expenses.async.update-parallelism threads rather than on the worker thread.
+ * Enabled with expenses.async.enabled (on by default).
+ */
+@RequestMapping("/api/async")
+@RestController
+@ConditionalOnProperty(name = "expenses.async.enabled", havingValue = "true", matchIfMissing = true)
+public class AsyncExpenseController {
+
+    /**
+     * Note 2c: SolidClient
+     * The asynchronous client shares the session created in SolidClientConfiguration.
+     */
+    final SolidClient client;
+    private final ExpenseChangeTracker expenseChanges;
+    private final PodMetrics podMetrics;
+    private final PodDirectory podDirectory;
+    private final WriteBehindQueue writeBehind;
+    private final ExpensePatcher expensePatcher;
+    private final ExecutorService updateExecutor;
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
+    /**
+     * Concurrent reads of the same Expense share one Pod request; each caller gets its own copy of the Expense.
+     */
+    private final SingleFlight<URI, Expense> expenseReads;
+
+    public AsyncExpenseController(SolidClient client, ExpenseChangeTracker expenseChanges, PodMetrics podMetrics,
+                                  PodDirectory podDirectory, WriteBehindQueue writeBehind, ExpensePatcher expensePatcher,
+                                  @Value("${expenses.async.update-parallelism:16}") int updateParallelism) {
+        this.client = client;
+        this.expenseChanges = expenseChanges;
+        this.podMetrics = podMetrics;
+        this.podDirectory = podDirectory;
+        this.writeBehind = writeBehind;
+        this.expensePatcher = expensePatcher;
+        this.updateExecutor = Executors.newFixedThreadPool(updateParallelism);
+        this.expenseReads = new SingleFlight<>(() -> podMetrics.coalesced("expense"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        updateExecutor.shutdown();
+    }
+
+    @GetMapping("/pods")
+    public CompletableFuture<Set<URI>> getPods(@RequestParam(value = "webid", defaultValue = "") String webID) {
+        printWriter.println("AsyncExpenseController:: getPods");
+        return podDirectory.getStoragesAsync(URI.create(webID).normalize())
+                .exceptionally(e -> logFailure("getPods", e));
+    }
+
+    @PostMapping(path = "/expenses/create")
+    public CompletableFuture<Expense> createExpense(@RequestBody Expense newExpense) {
+        printWriter.println("AsyncExpenseController:: createExpense");
+        return podMetrics.podAsync("create", () -> client.create(newExpense))
+                .thenApply(createdExpense -> {
+                    expenseChanges.saved(createdExpense);
+                    return createdExpense;
+                })
+                .toCompletableFuture()
+                .exceptionally(e -> logFailure("createExpense", e));
+    }
+
+    @GetMapping("/expenses/get")
+    public CompletableFuture<Expense> getExpense(@RequestParam(value = "resourceURL", defaultValue = "") String resourceURL) {
+        printWriter.println("AsyncExpenseController:: getExpense");
+        final URI resourceURI = URI.create(resourceURL).normalize();
+        final Expense pending = writeBehind.pending(resourceURI);
+        if (pending != null) return CompletableFuture.completedFuture(pending);
+        return expenseReads.async(resourceURI, () -> podMetrics.podAsync("read", () -> client.read(resourceURI, Expense.class)))
+                .thenApply(ExpenseCache::copy)
+                .exceptionally(e -> logFailure("getExpense", e));
+    }
+
+    @PutMapping("/expenses/update")
+    public CompletableFuture<Expense> updateExpense(@RequestBody Expense expense,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        printWriter.println("AsyncExpenseController:: updateExpense");
+        if (writeBehind.isEnabled() && ifMatch == null) {
+            try {
+                return CompletableFuture.completedFuture(writeBehind.enqueue(expense));
+            } catch (Exception e) {
+                return CompletableFuture.<Expense>failedFuture(e).exceptionally(e1 -> logFailure("updateExpense", e1));
+            }
+        }
+        // Written at once, so it replaces any older update still waiting in the write-behind queue.
+        writeBehind.discard(expense.getIdentifier());
+        return CompletableFuture.supplyAsync(() -> expensePatcher.update(expense, ifMatch), updateExecutor)
+                .thenApply(updatedExpense -> {
+                    expenseReads.forget(updatedExpense.getIdentifier());
+                    expenseChanges.saved(updatedExpense);
+                    return updatedExpense;
+                })
+                .exceptionally(e -> logFailure("updateExpense", e));
+    }
+
+    @DeleteMapping("/expenses/delete")
+    public CompletableFuture<Void> deleteExpense(@RequestParam(value = "resourceURL") String resourceURL) {
+        printWriter.println("AsyncExpenseController:: deleteExpense");
+        final URI resourceURI = URI.create(resourceURL).normalize();
+        writeBehind.discard(resourceURI);
+        return podMetrics.podAsync("delete", () -> client.delete(resourceURI))
+                .thenRun(() -> {
+                    expenseReads.forget(resourceURI);
+                    expenseChanges.deleted(resourceURI);
+                })
+                .toCompletableFuture()
+                .exceptionally(e -> logFailure("deleteExpense", e));
+    }
+
+    private <T> T logFailure(String operation, Throwable failure) {
+        final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        // Completes the response future with it, so the PodExceptionHandler answers 429 or 503.
+        PodOverloadedException.rethrowIfOverloaded(cause);
+        if (cause instanceof PreconditionFailedException e0) {
+            // The Expense changed since the version the update was based on.
+            printWriter.println(String.format("[%s] %s in %s:: %s", e0.getStatusCode(), e0.getClass().getName(), operation, e0.getMessage()));
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e0.getMessage());
+        }
+        if (cause instanceof SolidClientException e1) {
+            printWriter.println(String.format("[%s] %s in %s:: %s", e1.getStatusCode(), e1.getClass().getName(), operation, e1.getMessage()));
+        } else {
+            cause.printStackTrace();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.gettingstarted;
+
+import java.net.URI;
+
+/**
+ * One entry of a POST /api/expenses/batch request.
+ * <p>
+ * CREATE and UPDATE carry the Expense to write; DELETE carries only the resourceURL.
+ */
+public record BatchOperation(Type type, Expense expense, URI resourceURL) {
+
+    public enum Type { CREATE, UPDATE, DELETE }
+
+    URI target() {
+        if (expense != null) return expense.getIdentifier();
+        return resourceURL;
+    }
+}
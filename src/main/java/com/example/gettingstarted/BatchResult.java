@@ -0,0 +1,19 @@
+package com.example.gettingstarted;
+
+import java.net.URI;
+
+/**
+ * The outcome of one BatchOperation, reported at the same index as the request entry.
+ * The status is the HTTP status code returned by the Pod, or 500 when the call failed without one.
+ */
+public record BatchResult(int index, BatchOperation.Type type, URI identifier, int status, String error) {
+
+    static BatchResult success(int index, BatchOperation operation, int status) {
+        return new BatchResult(index, operation.type(), operation.target(), status, null);
+    }
+
+    static BatchResult failure(int index, BatchOperation operation, int status, String error) {
+        return new BatchResult(index, operation == null ? null : operation.type(),
+                operation == null ? null : operation.target(), status, error);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.gettingstarted;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV records one at a time: comma separated, fields optionally quoted with ",
+ * "" for a quote inside a quoted field, and line breaks allowed inside quoted fields.
+ * Only the current record is held in memory. Wrap the Reader in a BufferedReader.
+ */
+final class CsvReader {
+
+    /**
+     * The input is not valid CSV, as opposed to an error reading it.
+     */
+    static final class MalformedCsvException extends IOException {
+        MalformedCsvException(String message) {
+            super(message);
+        }
+    }
+
+    private final Reader reader;
+    private int peeked = -2;
+
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * The next record, or null at the end of the input. Blank lines are skipped.
+     */
+    List<String> next() throws IOException {
+        while (true) {
+            if (peek() == -1) return null;
+            final List<String> fields = new ArrayList<>();
+            final StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            while (true) {
+                final int c = read();
+                if (c == -1) {
+                    if (quoted) throw new MalformedCsvException("Unterminated quoted field at end of input");
+                    break;
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    any = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    any = true;
+                } else if (c == '\r' || c == '\n') {
+                    if (c == '\r' && peek() == '\n') read();
+                    break;
+                } else {
+                    field.append((char) c);
+                    any = true;
+                }
+            }
+            if (!any && field.length() == 0) continue;
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) peeked = reader.read();
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        final int c = peek();
+        peeked = -2;
+        return c;
+    }
+}
@@ -9,15 +9,21 @@ import com.inrupt.rdf.wrapping.commons.RDFFactory;
 import com.inrupt.rdf.wrapping.commons.TermMappings;
 import com.inrupt.rdf.wrapping.commons.ValueMappings;
 import com.inrupt.rdf.wrapping.commons.WrapperIRI;
+import org.apache.commons.rdf.api.BlankNodeOrIRI;
 import org.apache.commons.rdf.api.Dataset;
 import org.apache.commons.rdf.api.Graph;
 import org.apache.commons.rdf.api.IRI;
 import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
 
 import java.math.BigDecimal;
 import java.net.URI;
 import java.time.Instant;
+import java.util.AbstractSet;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -61,6 +67,17 @@ public class Expense extends SolidRDFSource {
      */
     private final Node subject;
 
+    /**
+     * Note 3a: Snapshot
+     * The getters read from an immutable Snapshot, decoded from the subject's triples in one pass
+     * the first time a getter is called. Every setter discards it, so the next getter decodes again.
+     * Only the setters do: after the triples are changed directly, through getGraph(), the getters keep
+     * returning the old values. Change an Expense through its setters, or build a new one from the changed Dataset.
+     */
+    private volatile Snapshot snapshot;
+
+    private final Set<String> receipts = new Receipts();
+
     /**
      * Note 4: Constructors
      * Expense constructors to handle SolidResource fields:
@@ -102,76 +119,169 @@ public class Expense extends SolidRDFSource {
 
     /**
      * Note 5: Various getters/setters.
-     * The getters and setters reference the subject's methods.
+     * The getters read the decoded Snapshot; the setters reference the subject's methods and discard the Snapshot.
      */
 
     public URI getRDFType() {
-        return subject.getRDFType();
+        return snapshot().rdfType();
     }
 
     public void setRDFType(URI rdfType) {
         subject.setRDFType(rdfType);
+        snapshot = null;
     }
 
     public String getMerchantProvider() {
-        return subject.getMerchantProvider();
+        return snapshot().merchantProvider();
     }
 
     public void setMerchantProvider(String merchantProvider) {
         subject.setMerchantProvider(merchantProvider);
+        snapshot = null;
     }
 
     public Date getExpenseDate() {
-        return subject.getExpenseDate();
+        final Instant expenseDate = snapshot().expenseDate();
+        return expenseDate == null ? null : Date.from(expenseDate);
     }
 
     public void setExpenseDate(Date expenseDate) {
         subject.setExpenseDate(expenseDate);
+        snapshot = null;
     }
 
     public String getDescription() {
-        return subject.getDescription();
+        return snapshot().description();
     }
 
     public void setDescription(String description) {
         subject.setDescription(description);
+        snapshot = null;
     }
 
     public BigDecimal getAmount() {
-        return subject.getAmount();
+        return snapshot().amount();
     }
 
     public void setAmount(BigDecimal amount) {
         subject.setAmount(amount);
+        snapshot = null;
     }
 
     public String getCurrency() {
-        return subject.getCurrency();
+        return snapshot().currency();
     }
 
     public void setCurrency(String currency) {
         subject.setCurrency(currency);
+        snapshot = null;
     }
 
     public String getCategory() {
-        return subject.getCategory();
+        return snapshot().category();
     }
 
     public void setCategory(String category) {
         subject.setCategory(category);
+        snapshot = null;
     }
 
+    /**
+     * Returns a live view of the receipt links: reads come from the Snapshot, and add(), remove() and clear()
+     * change the subject's triples and discard the Snapshot, as the setters do.
+     */
     public Set<String> getReceipts() {
-        return subject.getReceipts();
+        return receipts;
     }
 
-    // Note:: The setters first uses the getter, which returns a Set, and adds the receipt to the set.
+    // Note:: The setters first uses the subject's getter, which returns a Set, and adds the receipt to the set.
     public void addReceipt(String receipt) {
         subject.getReceipts().add(receipt);
+        snapshot = null;
     }
 
     public void setReceipts(String[] receipts) {
         subject.getReceipts().addAll(List.of(receipts));
+        snapshot = null;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = subject.snapshot();
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * The set returned by getReceipts.
+     */
+    private final class Receipts extends AbstractSet<String> {
+
+        @Override
+        public Iterator<String> iterator() {
+            final Iterator<String> receipts = snapshot().receipts().iterator();
+            return new Iterator<>() {
+                private String last;
+
+                @Override
+                public boolean hasNext() {
+                    return receipts.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    last = receipts.next();
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) throw new IllegalStateException();
+                    Receipts.this.remove(last);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return snapshot().receipts().size();
+        }
+
+        @Override
+        public boolean contains(Object receipt) {
+            return snapshot().receipts().contains(receipt);
+        }
+
+        @Override
+        public boolean add(String receipt) {
+            final boolean added = subject.getReceipts().add(receipt);
+            snapshot = null;
+            return added;
+        }
+
+        @Override
+        public boolean remove(Object receipt) {
+            final boolean removed = subject.getReceipts().remove(receipt);
+            snapshot = null;
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            subject.getReceipts().clear();
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Note 5a: Snapshot record
+     * The typed values of the subject's triples. The amount is parsed into a BigDecimal once, not per call.
+     */
+    record Snapshot(URI rdfType, String merchantProvider, Instant expenseDate, String description,
+                    BigDecimal amount, String currency, String category, Set<String> receipts) {
     }
 
     /**
@@ -184,8 +294,58 @@ public class Expense extends SolidRDFSource {
      */
     class Node extends WrapperIRI {
 
+        private final RDFTerm original;
+        private final Graph graph;
+
         Node(final RDFTerm original, final Graph graph) {
             super(original, graph);
+            this.original = original;
+            this.graph = graph;
+        }
+
+        /**
+         * Note 6a: Decodes every field in a single pass over the subject's triples,
+         * instead of one graph lookup per getter. Like anyOrNull, the first value found for a predicate wins.
+         */
+        Snapshot snapshot() {
+            URI rdfType = null;
+            String merchantProvider = null;
+            Instant expenseDate = null;
+            String description = null;
+            String amount = null;
+            String currency = null;
+            String category = null;
+            final Set<String> receipts = new LinkedHashSet<>();
+
+            try (var triples = graph.stream((BlankNodeOrIRI) original, null, null)) {
+                final Iterator<? extends Triple> iterator = triples.iterator();
+                while (iterator.hasNext()) {
+                    final Triple triple = iterator.next();
+                    final IRI predicate = triple.getPredicate();
+                    final RDFTerm object = triple.getObject();
+                    if (predicate.equals(RDF_TYPE)) {
+                        if (rdfType == null) rdfType = ValueMappings.iriAsUri(object, graph);
+                    } else if (predicate.equals(SCHEMA_ORG_PROVIDER)) {
+                        if (merchantProvider == null) merchantProvider = ValueMappings.literalAsString(object, graph);
+                    } else if (predicate.equals(SCHEMA_ORG_PURCHASE_DATE)) {
+                        if (expenseDate == null) expenseDate = ValueMappings.literalAsInstant(object, graph);
+                    } else if (predicate.equals(SCHEMA_ORG_DESCRIPTION)) {
+                        if (description == null) description = ValueMappings.literalAsString(object, graph);
+                    } else if (predicate.equals(SCHEMA_ORG_TOTAL_PRICE)) {
+                        if (amount == null) amount = ValueMappings.literalAsString(object, graph);
+                    } else if (predicate.equals(SCHEMA_ORG_PRICE_CURRENCY)) {
+                        if (currency == null) currency = ValueMappings.literalAsString(object, graph);
+                    } else if (predicate.equals(SCHEMA_ORG_CATEGORY)) {
+                        if (category == null) category = ValueMappings.literalAsString(object, graph);
+                    } else if (predicate.equals(SCHEMA_ORG_IMAGE)) {
+                        receipts.add(ValueMappings.iriAsString(object, graph));
+                    }
+                }
+            }
+
+            return new Snapshot(rdfType, merchantProvider, expenseDate, description,
+                    amount == null ? null : new BigDecimal(amount), currency, category,
+                    Collections.unmodifiableSet(receipts));
         }
 
         URI getRDFType() {
@@ -221,7 +381,8 @@ public class Expense extends SolidRDFSource {
         }
 
         public void setExpenseDate(Date expenseDate) {
-            overwriteNullable(SCHEMA_ORG_PURCHASE_DATE, expenseDate.toInstant(), TermMappings::asTypedLiteral);
+            overwriteNullable(SCHEMA_ORG_PURCHASE_DATE, expenseDate == null ? null : expenseDate.toInstant(),
+                    TermMappings::asTypedLiteral);
         }
 
         String getDescription() {
@@ -0,0 +1,286 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Headers;
+import com.inrupt.client.Request;
+import com.inrupt.client.Response;
+import com.inrupt.client.solid.Metadata;
+import com.inrupt.client.solid.SolidClientException;
+import com.inrupt.client.solid.SolidSyncClient;
+import com.inrupt.client.spi.RdfService;
+import com.inrupt.client.spi.ServiceProvider;
+import com.inrupt.rdf.wrapping.commons.RDFFactory;
+import org.apache.commons.rdf.api.Dataset;
+import org.apache.commons.rdf.api.RDFSyntax;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, in-process read-through cache of Expense resources keyed by resource URI.
+ * <p>
+ * Each entry keeps the parsed Dataset together with the ETag and Last-Modified validators
+ * returned by the Pod. Reads within the freshness window are served from memory; older entries
+ * are revalidated with a conditional GET, so an unchanged resource costs a 304 instead of a full
+ * download and Turtle parse. Entries are evicted least-recently-used once the cache is full,
+ * and dropped entirely once they are older than the time-to-live.
+ * <p>
+ * Concurrent reads of the same resource that miss the cache share one request to the Pod and one parse.
+ * A load still in flight when the resource is invalidated does not store what it read, as that may predate the write.
+ */
+public class ExpenseCache {
+
+    private static final RdfService rdfService = ServiceProvider.getRdfService();
+    private static final String PIM_STORAGE = "http://www.w3.org/ns/pim/space#storage";
+
+    private final SolidSyncClient client;
+    private final PodMetrics podMetrics;
+    private final int maxSize;
+    private final Duration freshFor;
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    private final Map<URI, Entry> entries;
+
+    /**
+     * The generation of the load in flight for each resource; invalidate() drops it, so that load's store is
+     * ignored. Guarded by entries.
+     */
+    private final Map<URI, Long> loading = new HashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final SingleFlight<URI, Entry> loads;
+
+    public ExpenseCache(final SolidSyncClient client, final PodMetrics podMetrics, final int maxSize,
+                        final Duration freshFor, final Duration timeToLive) {
+        this(client, podMetrics, maxSize, freshFor, timeToLive, Clock.systemUTC());
+    }
+
+    ExpenseCache(final SolidSyncClient client, final PodMetrics podMetrics, final int maxSize,
+                 final Duration freshFor, final Duration timeToLive, final Clock clock) {
+        this.client = client;
+        this.podMetrics = podMetrics;
+        this.maxSize = maxSize;
+        this.freshFor = freshFor;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        this.loads = new SingleFlight<>(() -> podMetrics.coalesced("expense"));
+        // Access-ordered, so the eldest entry is always the least recently used one.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<URI, Entry> eldest) {
+                return size() > ExpenseCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the Expense at the identifier, using the cached copy when the Pod confirms it is unchanged.
+     * Each call returns its own Expense instance, so callers may modify it freely.
+     */
+    public Expense read(final URI identifier) {
+        return readVersioned(identifier).expense();
+    }
+
+    /**
+     * Like read, but also returns the ETag the Pod reported for this version, for use in If-Match preconditions.
+     * The ETag is null when the Pod did not send one.
+     */
+    public Versioned readVersioned(final URI identifier) {
+        final Instant now = clock.instant();
+        final Entry cached = lookup(identifier, now);
+
+        if (cached != null && cached.validatedAt.plus(freshFor).isAfter(now)) {
+            hits.incrementAndGet();
+            return cached.toVersioned(identifier);
+        }
+
+        return loads.sync(identifier, () -> load(identifier, cached, now)).toVersioned(identifier);
+    }
+
+    /**
+     * The cached version of the Expense with its ETag, without contacting the Pod, or null when none is cached.
+     * It may no longer be the version in the Pod; use its ETag in an If-Match to find out.
+     */
+    public Versioned cached(final URI identifier) {
+        final Entry cached = lookup(identifier, clock.instant());
+        return cached == null ? null : cached.toVersioned(identifier);
+    }
+
+    private Entry load(final URI identifier, final Entry cached, final Instant now) {
+        final long generation = generations.incrementAndGet();
+        synchronized (entries) {
+            loading.put(identifier, generation);
+        }
+        try {
+            return load(identifier, cached, now, generation);
+        } finally {
+            synchronized (entries) {
+                loading.remove(identifier, generation);
+            }
+        }
+    }
+
+    private Entry load(final URI identifier, final Entry cached, final Instant now, final long generation) {
+        final Request.Builder request = Request.newBuilder(identifier)
+                .header("Accept", "text/turtle")
+                .GET();
+        if (cached != null) {
+            if (cached.etag != null) request.header("If-None-Match", cached.etag);
+            if (cached.lastModified != null) request.header("If-Modified-Since", cached.lastModified);
+        }
+
+        final Response<byte[]> response = podMetrics.pod("read",
+                () -> client.send(request.build(), Response.BodyHandlers.ofByteArray()));
+
+        if (response.statusCode() == 304 && cached != null) {
+            revalidations.incrementAndGet();
+            final Entry revalidated = new Entry(cached.dataset, cached.metadata, cached.etag, cached.lastModified,
+                    cached.loadedAt, now);
+            store(identifier, generation, revalidated);
+            return revalidated;
+        }
+
+        if (response.statusCode() >= 400) {
+            invalidate(identifier);
+            throw SolidClientException.handle("Unable to read resource at " + identifier, identifier,
+                    response.statusCode(), response.headers(),
+                    new String(response.body(), StandardCharsets.UTF_8));
+        }
+
+        misses.incrementAndGet();
+        final Entry loaded = new Entry(podMetrics.serialization("turtle", "read", () -> parse(identifier, response.body())),
+                metadata(response.headers()),
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null),
+                now, now);
+        store(identifier, generation, loaded);
+        return loaded;
+    }
+
+    /**
+     * Drops any cached copy of the resource. Call after every write to the Pod.
+     */
+    public void invalidate(final URI identifier) {
+        loads.forget(identifier);
+        synchronized (entries) {
+            entries.remove(identifier);
+            loading.remove(identifier);
+        }
+    }
+
+    public Stats getStats() {
+        final int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(size, maxSize, hits.get(), misses.get(), revalidations.get(), loads.coalesced());
+    }
+
+    private Entry lookup(final URI identifier, final Instant now) {
+        synchronized (entries) {
+            final Entry entry = entries.get(identifier);
+            if (entry != null && !entry.loadedAt.plus(timeToLive).isAfter(now)) {
+                entries.remove(identifier);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Stores the entry unless the resource was invalidated since the load of this generation started.
+     */
+    private void store(final URI identifier, final long generation, final Entry entry) {
+        synchronized (entries) {
+            if (loading.remove(identifier, generation)) entries.put(identifier, entry);
+        }
+    }
+
+    static Dataset parse(final URI identifier, final byte[] turtle) {
+        try {
+            return rdfService.toDataset(RDFSyntax.TURTLE, new ByteArrayInputStream(turtle), identifier.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to parse resource at " + identifier, e);
+        }
+    }
+
+    /**
+     * The Metadata a SolidSyncClient read would attach to the Expense, from the same response headers:
+     * the type and storage Link headers, WAC-Allow, Allow, Accept-Patch/Post/Put and Content-Type.
+     */
+    static Metadata metadata(final Headers headers) {
+        final Metadata.Builder metadata = Metadata.newBuilder();
+        headers.allValues("Link").stream().flatMap(link -> Headers.Link.parse(link).stream()).forEach(link -> {
+            final String rel = link.getParameter("rel");
+            if (rel == null) return;
+            final List<String> rels = List.of(rel.trim().split("\\s+"));
+            if (rels.contains("type")) metadata.type(link.getUri());
+            if (rels.contains(PIM_STORAGE)) metadata.storage(link.getUri());
+        });
+        headers.allValues("WAC-Allow").stream()
+                .flatMap(value -> Headers.WacAllow.parse(value).getAccessParams().entrySet().stream())
+                .forEach(metadata::wacAllow);
+        values(headers, "Allow").forEach(metadata::allowedMethod);
+        values(headers, "Accept-Patch").forEach(metadata::allowedPatchSyntax);
+        values(headers, "Accept-Post").forEach(metadata::allowedPostSyntax);
+        values(headers, "Accept-Put").forEach(metadata::allowedPutSyntax);
+        headers.firstValue("Content-Type").ifPresent(metadata::contentType);
+        return metadata.build();
+    }
+
+    private static List<String> values(final Headers headers, final String name) {
+        return headers.allValues(name).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toList();
+    }
+
+    static Dataset copy(final Dataset source) {
+        final Dataset copy = RDFFactory.getInstance().createDataset();
+        source.stream().forEach(copy::add);
+        return copy;
+    }
+
+    /**
+     * A private copy of the Expense, for handing one Expense read to several callers.
+     */
+    static Expense copy(final Expense source) {
+        final Dataset copy = RDFFactory.getInstance().createDataset();
+        source.getGraph().stream().forEach(triple -> copy.add(null, triple.getSubject(), triple.getPredicate(), triple.getObject()));
+        return new Expense(source.getIdentifier(), copy, source.getMetadata());
+    }
+
+    /**
+     * The cached Dataset is never handed out directly; every read gets a private copy. The Metadata is shared,
+     * as it is not modified after it is built.
+     */
+    private record Entry(Dataset dataset, Metadata metadata, String etag, String lastModified, Instant loadedAt,
+                         Instant validatedAt) {
+
+        Versioned toVersioned(final URI identifier) {
+            return new Versioned(new Expense(identifier, copy(dataset), metadata), etag);
+        }
+    }
+
+    public record Versioned(Expense expense, String etag) {
+    }
+
+    public record Stats(int size, int maxSize, long hits, long misses, long revalidations, long coalesced) {
+    }
+}
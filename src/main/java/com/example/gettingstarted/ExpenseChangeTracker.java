@@ -0,0 +1,37 @@
+package com.example.gettingstarted;
+
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+
+/**
+ * The single place the controllers report successful writes to the Pod,
+ * so every local view of the expenses (the read cache and the search index) stays in step.
+ */
+@Component
+public class ExpenseChangeTracker {
+
+    private final ExpenseCache expenseCache;
+    private final ExpenseIndex expenseIndex;
+
+    public ExpenseChangeTracker(ExpenseCache expenseCache, ExpenseIndex expenseIndex) {
+        this.expenseCache = expenseCache;
+        this.expenseIndex = expenseIndex;
+    }
+
+    /**
+     * Call after the Expense was created or updated in the Pod.
+     */
+    public void saved(Expense expense) {
+        expenseCache.invalidate(expense.getIdentifier());
+        expenseIndex.put(IndexEntry.of(expense));
+    }
+
+    /**
+     * Call after the resource was deleted from the Pod.
+     */
+    public void deleted(URI identifier) {
+        expenseCache.invalidate(identifier);
+        expenseIndex.remove(identifier);
+    }
+}
@@ -1,50 +1,169 @@
 package com.example.gettingstarted;
 
-import com.inrupt.client.auth.Session;
-import com.inrupt.client.openid.OpenIdSession;
 import com.inrupt.client.solid.*;
-import com.inrupt.client.webid.WebIdProfile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.apache.commons.rdf.api.RDFSyntax;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RequestMapping("/api")
 @RestController
 public class ExpenseController {
 
     /**
-     * Note 1: Authenticated Session
-     * Using the client credentials, create an authenticated session.
+     * Note 1 and Note 2: the authenticated Session and the SolidSyncClient built on it
+     * are created once in SolidClientConfiguration and shared with the non-blocking controller.
      */
-    final Session session = OpenIdSession.ofClientCredentials(
-            URI.create(System.getenv("MY_SOLID_IDP")).normalize(),
-            System.getenv("MY_SOLID_CLIENT_ID"),
-            System.getenv("MY_SOLID_CLIENT_SECRET"),
-            System.getenv("MY_AUTH_FLOW"));
+    final SolidSyncClient client;
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
     /**
-     * Note 2: SolidSyncClient
-     * Instantiates a synchronous client for the authenticated session.
-     * The client has methods to perform CRUD operations.
+     * Note 2a: ExpenseCache
+     * Keeps recently read Expenses in memory and revalidates them against the Pod with conditional requests.
      */
-    final SolidSyncClient client = SolidSyncClient.getClient().session(session);
-    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+    private final ExpenseCache expenseCache;
+
+    /**
+     * Note 2b: Batch executor
+     * A fixed pool that bounds how many batch operations are in flight against the Pod at once.
+     */
+    private final ExecutorService batchExecutor;
+
+    /**
+     * Note 2d: ExpenseCrawler
+     * Lists an expense container and fetches its Expenses with bounded parallelism.
+     */
+    private final ExpenseCrawler expenseCrawler;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Note 2e: ExpenseIndex and ExpenseChangeTracker
+     * Successful writes are reported to the tracker, which keeps the cache and the local search index in step.
+     */
+    private final ExpenseIndex expenseIndex;
+    private final ExpenseChangeTracker expenseChanges;
+
+    /**
+     * Note 2f: ExpenseRollups
+     * Totals per category, currency and month, kept up to date from the ExpenseIndex.
+     */
+    private final ExpenseRollups expenseRollups;
+
+    /**
+     * Note 2g: PodMetrics
+     * Times every Pod call by operation and outcome, Turtle serialization and receipt uploads.
+     */
+    private final PodMetrics podMetrics;
+
+    /**
+     * Note 2h: ExpensePatcher
+     * Sends updates as a PATCH of the changed triples, guarded by the ETag of the version they were diffed against.
+     */
+    private final ExpensePatcher expensePatcher;
+
+    /**
+     * Note 2i: ReceiptUploader
+     * Pipes large request bodies to the Pod in bounded chunks instead of buffering a multipart upload,
+     * and with the ReceiptIndex, finds receipts whose content is already in the Pod.
+     */
+    private final ReceiptUploader receiptUploader;
+    private final ReceiptIndex receiptIndex;
+
+    /**
+     * Note 2j: PodDirectory
+     * Caches the Pods listed in each WebID profile, and shares one profile read between concurrent lookups.
+     */
+    private final PodDirectory podDirectory;
+
+    /**
+     * Note 2k: WriteBehindQueue
+     * When enabled, journals updates locally and writes bursts of updates to one Expense to the Pod as one.
+     */
+    private final WriteBehindQueue writeBehind;
+
+    /**
+     * Note 2l: ExpenseImporter
+     * Streams CSV or JSON Lines files of expenses into the Pod with bounded concurrency and a resumable checkpoint.
+     * The ExpenseExporter streams them back out as N-Quads, Turtle or NDJSON.
+     */
+    private final ExpenseImporter expenseImporter;
+    private final ExpenseExporter expenseExporter;
+
+    public ExpenseController(SolidSyncClient client,
+                             ExpenseCache expenseCache,
+                             ExpenseCrawler expenseCrawler,
+                             ExpenseIndex expenseIndex,
+                             ExpenseChangeTracker expenseChanges,
+                             ExpenseRollups expenseRollups,
+                             PodMetrics podMetrics,
+                             ExpensePatcher expensePatcher,
+                             ReceiptUploader receiptUploader,
+                             ReceiptIndex receiptIndex,
+                             PodDirectory podDirectory,
+                             WriteBehindQueue writeBehind,
+                             ExpenseImporter expenseImporter,
+                             ExpenseExporter expenseExporter,
+                             ObjectMapper objectMapper,
+                             @Value("${expenses.batch.parallelism:16}") int batchParallelism) {
+        this.client = client;
+        this.expenseCache = expenseCache;
+        this.expenseCrawler = expenseCrawler;
+        this.expenseIndex = expenseIndex;
+        this.expenseChanges = expenseChanges;
+        this.expenseRollups = expenseRollups;
+        this.podMetrics = podMetrics;
+        this.expensePatcher = expensePatcher;
+        this.receiptUploader = receiptUploader;
+        this.receiptIndex = receiptIndex;
+        this.podDirectory = podDirectory;
+        this.writeBehind = writeBehind;
+        this.expenseImporter = expenseImporter;
+        this.expenseExporter = expenseExporter;
+        this.objectMapper = objectMapper;
+        this.batchExecutor = Executors.newFixedThreadPool(batchParallelism);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        batchExecutor.shutdown();
+    }
 
     /**
      * Note 3: SolidSyncClient.read()
      * Using the SolidSyncClient client.read() method, reads the user's WebID Profile document and returns the Pod URI(s).
+     * The read is done by the PodDirectory, which caches the result for expenses.pods.ttl.
      */
     @GetMapping("/pods")
     public Set<URI> getPods(@RequestParam(value = "webid", defaultValue = "") String webID) {
         printWriter.println("ExpenseController:: getPods");
-        try (final var profile = client.read(URI.create(webID).normalize(), WebIdProfile.class)) {
-            return profile.getStorages();
-        }
+        return podDirectory.getStorages(URI.create(webID).normalize());
     }
 
     /**
@@ -55,7 +174,8 @@ public class ExpenseController {
     @PostMapping(path = "/expenses/create")
     public Expense createExpense(@RequestBody Expense newExpense) {
         printWriter.println("ExpenseController:: createExpense");
-        try (var createdExpense = client.create(newExpense)) {
+        try (var createdExpense = podMetrics.pod("create", () -> client.create(newExpense))) {
+            expenseChanges.saved(createdExpense);
             printExpenseAsTurtle(createdExpense);
             return createdExpense;
         } catch(PreconditionFailedException e1) {
@@ -65,6 +185,7 @@ public class ExpenseController {
             // Errors if user does not have access to create
             printWriter.println(String.format("[%s] com.inrupt.client.solid.ForbiddenException:: %s", e2.getStatusCode(), e2.getMessage()));
         } catch(Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
             e.printStackTrace();
         }
         return null;
@@ -72,14 +193,22 @@ public class ExpenseController {
 
     /**
      * Note 5: SolidSyncClient.read()
-     * Using the SolidSyncClient client.read() method,
+     * Using the ExpenseCache, which calls the SolidSyncClient with conditional requests,
      * - Reads the RDF resource into the Expense class.
+     * - Returns the version's ETag in the ETag header, to send back in If-Match with an update.
+     * An update still waiting in the WriteBehindQueue is returned instead of the version in the Pod, without an ETag.
      */
     @GetMapping("/expenses/get")
-    public Expense getExpense(@RequestParam(value = "resourceURL", defaultValue = "") String resourceURL) {
+    public Expense getExpense(@RequestParam(value = "resourceURL", defaultValue = "") String resourceURL,
+                              HttpServletResponse response) {
         printWriter.println("ExpenseController:: getExpense");
-        try (var resource = client.read(URI.create(resourceURL).normalize(), Expense.class)) {
-            return resource;
+        try {
+            final URI resourceURI = URI.create(resourceURL).normalize();
+            final Expense pending = writeBehind.pending(resourceURI);
+            if (pending != null) return pending;
+            final ExpenseCache.Versioned current = expenseCache.readVersioned(resourceURI);
+            if (response != null && current.etag() != null) response.setHeader(HttpHeaders.ETAG, current.etag());
+            return current.expense();
         } catch (NotFoundException e1) {
             // Errors if resource is not found
             printWriter.println(String.format("[%s] com.inrupt.client.solid.NotFoundException:: %s", e1.getStatusCode(), e1.getMessage()));
@@ -87,23 +216,185 @@ public class ExpenseController {
             // Errors if user does not have access to read
             printWriter.println(String.format("[%s] com.inrupt.client.solid.ForbiddenException:: %s", e2.getStatusCode(), e2.getMessage()));
         } catch(Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
             e.printStackTrace();
         }
         return null;
     }
 
     /**
-     * Note 6: SolidSyncClient.update()
-     * Using the SolidSyncClient client.update() method,
-     * - Updates the Expense resource.
+     * Note 5b: Lists the Expenses in a container as NDJSON
+     * Using the ExpenseCrawler,
+     * - Reads the container and sorts the contained resource URIs.
+     * - Takes up to `limit` URIs after `cursor` and fetches them concurrently.
+     * - Writes each Expense as one JSON line as soon as it arrives.
+     * The Link header points to the next page, whose cursor is the last URI of this page.
+     */
+    @GetMapping(path = "/expenses", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> listExpenses(@RequestParam(value = "container") String containerURL,
+                                                              @RequestParam(value = "cursor", required = false) String cursor,
+                                                              @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        printWriter.println("ExpenseController:: listExpenses");
+        final List<URI> contained = expenseCrawler.list(URI.create(containerURL).normalize());
+        // Compared as URIs, in the order the crawler sorts them.
+        final URI after = cursor == null ? null : URI.create(cursor);
+        final List<URI> page = contained.stream()
+                .filter(identifier -> after == null || identifier.compareTo(after) > 0)
+                .limit(Math.max(1, limit))
+                .toList();
+
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"));
+        if (!page.isEmpty() && !page.get(page.size() - 1).equals(contained.get(contained.size() - 1))) {
+            final String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.get(page.size() - 1))
+                    .encode()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+
+        return response.body(out -> expenseCrawler.fetch(page, expense -> {
+            try {
+                out.write(podMetrics.serialization("json", "write", () -> writeJson(expense)));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    /**
+     * Note 5g: Exports every Expense in a container
+     * Using the ExpenseExporter,
+     * - Crawls the container with bounded parallelism and writes each Expense to the response as it arrives,
+     *   as N-Quads (format=nquads), Turtle (format=turtle) or NDJSON (format=ndjson).
+     * - With gzip=true, the response is a gzip file (expenses.nq.gz, ...) instead.
+     * - Lists the resources that could not be read at the end of the file.
+     */
+    @GetMapping("/expenses/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(@RequestParam(value = "container") String containerURL,
+                                                                @RequestParam(value = "format", defaultValue = "nquads") String format,
+                                                                @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        printWriter.println("ExpenseController:: exportExpenses");
+        final ExpenseExporter.Format exportFormat;
+        try {
+            exportFormat = ExpenseExporter.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e1) {
+            printWriter.println("ExpenseController:: exportExpenses:: unknown format " + format);
+            return ResponseEntity.badRequest().build();
+        }
+        final URI container = URI.create(containerURL).normalize();
+        final String fileName = "expenses." + exportFormat.extension() + (gzip ? ".gz" : "");
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(out -> {
+                    final ExpenseExporter.ExportReport report = expenseExporter.export(container, exportFormat, gzip, out);
+                    printWriter.println(String.format("ExpenseController:: exportExpenses:: %d expenses from %s, %d unreadable",
+                            report.exported(), container, report.unreadable().size()));
+                });
+    }
+
+    /**
+     * Note 5c: Searches the local ExpenseIndex
+     * Answers equality (category, currency, merchantProvider) and inclusive range (from/to date,
+     * minAmount/maxAmount) queries without contacting the Pod. Returns the indexed fields and identifiers.
+     * An inverted range or a negative limit is answered with 400 Bad Request.
+     */
+    @GetMapping("/expenses/search")
+    public List<IndexEntry> searchExpenses(@RequestParam(value = "category", required = false) String category,
+                                           @RequestParam(value = "currency", required = false) String currency,
+                                           @RequestParam(value = "merchantProvider", required = false) String merchantProvider,
+                                           @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                           @RequestParam(value = "minAmount", required = false) BigDecimal minAmount,
+                                           @RequestParam(value = "maxAmount", required = false) BigDecimal maxAmount,
+                                           @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        printWriter.println("ExpenseController:: searchExpenses");
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from " + from + " is after to " + to);
+        }
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minAmount " + minAmount + " exceeds maxAmount " + maxAmount);
+        }
+        if (limit < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must not be negative: " + limit);
+        }
+        final ExpenseQuery query = new ExpenseQuery(category, currency, merchantProvider,
+                from == null ? null : from.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                to == null ? null : to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().minusMillis(1),
+                minAmount, maxAmount);
+        return expenseIndex.search(query, limit);
+    }
+
+    /**
+     * Note 5d: Rebuilds the ExpenseIndex from the Expenses in a container
+     * Use after the index file was lost, or to reconcile it with changes made outside this application.
+     */
+    @PostMapping("/expenses/index/rebuild")
+    public int rebuildExpenseIndex(@RequestParam(value = "container") String containerURL) {
+        printWriter.println("ExpenseController:: rebuildExpenseIndex");
+        return expenseIndex.rebuild(URI.create(containerURL).normalize());
+    }
+
+    /**
+     * Note 5e: Reports totals per category, currency and month
+     * Read from the incrementally maintained ExpenseRollups; no Expense is fetched from the Pod.
+     */
+    @GetMapping("/expenses/summary")
+    public ExpenseSummary getExpenseSummary() {
+        printWriter.println("ExpenseController:: getExpenseSummary");
+        return expenseRollups.summary();
+    }
+
+    /**
+     * Note 5f: Recomputes the totals from the Expenses in a container
+     * Rebuilds the container's entries in the ExpenseIndex from the Pod, for reconciliation. The rollups replace
+     * that container's contributions; the totals of Expenses in other containers are kept.
+     */
+    @PostMapping("/expenses/summary/recompute")
+    public ExpenseSummary recomputeExpenseSummary(@RequestParam(value = "container") String containerURL) {
+        printWriter.println("ExpenseController:: recomputeExpenseSummary");
+        expenseIndex.rebuild(URI.create(containerURL).normalize());
+        return expenseRollups.summary();
+    }
+
+    /**
+     * Note 6: ExpensePatcher.update()
+     * Instead of the SolidSyncClient client.update() method, which PUTs the whole graph,
+     * - Diffs the Expense against the version it was based on (the If-Match ETag from getExpense, or else the
+     *   cached version) and PATCHes only the changed triples.
+     * - Answers 412 if the Expense changed in the Pod since the If-Match version. Against the cached version, the
+     *   changes are re-applied to the new version, as long as the values they replace are still there.
+     * With expenses.write-behind.enabled, an update without If-Match is only journaled here and written to the Pod later.
      */
     @PutMapping("/expenses/update")
-    public Expense updateExpense(@RequestBody Expense expense) {
+    public Expense updateExpense(@RequestBody Expense expense,
+                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         printWriter.println("ExpenseController:: updateExpense");
 
-        try(var updatedExpense = client.update(expense)) {
+        if (writeBehind.isEnabled() && ifMatch == null) {
+            try {
+                return writeBehind.enqueue(expense);
+            } catch (Exception e) {
+                PodOverloadedException.rethrowIfOverloaded(e);
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        // Written at once, so it replaces any older update still waiting in the write-behind queue.
+        writeBehind.discard(expense.getIdentifier());
+        try(var updatedExpense = expensePatcher.update(expense, ifMatch)) {
+            expenseChanges.saved(updatedExpense);
             printExpenseAsTurtle(updatedExpense);
             return updatedExpense;
+        } catch (PreconditionFailedException e0) {
+            // Errors if the Expense changed since the version the update was based on
+            printWriter.println(String.format("[%s] com.inrupt.client.solid.PreconditionFailedException:: %s", e0.getStatusCode(), e0.getMessage()));
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e0.getMessage());
         } catch (NotFoundException e1) {
             // Errors if resource is not found
             printWriter.println(String.format("[%s] com.inrupt.client.solid.NotFoundException:: %s", e1.getStatusCode(), e1.getMessage()));
@@ -111,6 +402,7 @@ public class ExpenseController {
             // Errors if user does not have access to read
             printWriter.println(String.format("[%s] com.inrupt.client.solid.ForbiddenException:: %s", e2.getStatusCode(), e2.getMessage()));
         } catch(Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
             e.printStackTrace();
         }
         return null;
@@ -126,7 +418,10 @@ public class ExpenseController {
     public void deleteExpense(@RequestParam(value = "resourceURL") String resourceURL) {
         printWriter.println("ExpenseController:: deleteExpense");
         try {
-            client.delete(URI.create(resourceURL).normalize());
+            final URI resourceURI = URI.create(resourceURL).normalize();
+            writeBehind.discard(resourceURI);
+            podMetrics.pod("delete", () -> client.delete(resourceURI));
+            expenseChanges.deleted(resourceURI);
 
             // Alternatively, you can specify an Expense object to the delete method.
             // The delete method deletes  the Expense recorde located in the Expense.identifier field.
@@ -138,24 +433,135 @@ public class ExpenseController {
             // Errors if user does not have access to read
             printWriter.println(String.format("[%s] com.inrupt.client.solid.ForbiddenException:: %s", e2.getStatusCode(), e2.getMessage()));
         } catch(Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
             e.printStackTrace();
         }
     }
 
+    /**
+     * Note 5a: Reports the ExpenseCache hit, miss and revalidation counters.
+     */
+    @GetMapping("/expenses/cache/stats")
+    public ExpenseCache.Stats getExpenseCacheStats() {
+        return expenseCache.getStats();
+    }
+
+    /**
+     * Note 7a: Batch create/update/delete
+     * Runs each operation on the batch executor, so at most expenses.batch.parallelism Pod calls are in flight.
+     * Every operation gets its own BatchResult with the Pod's status code; one failure does not stop the others.
+     */
+    @PostMapping("/expenses/batch")
+    public List<BatchResult> batchExpenses(@RequestBody List<BatchOperation> operations) {
+        printWriter.println("ExpenseController:: batchExpenses");
+        final List<CompletableFuture<BatchResult>> pending = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            final int index = i;
+            final BatchOperation operation = operations.get(i);
+            pending.add(CompletableFuture.supplyAsync(() -> runBatchOperation(index, operation), batchExecutor));
+        }
+        return pending.stream().map(CompletableFuture::join).toList();
+    }
+
+    private BatchResult runBatchOperation(int index, BatchOperation operation) {
+        if (operation == null || operation.type() == null || operation.target() == null
+                || (operation.type() != BatchOperation.Type.DELETE && operation.expense() == null)) {
+            return BatchResult.failure(index, operation, 400, "Operation requires a type and an expense or resourceURL");
+        }
+        try {
+            switch (operation.type()) {
+                case CREATE -> {
+                    try (var createdExpense = podMetrics.pod("create", () -> client.create(operation.expense()))) {
+                        expenseChanges.saved(createdExpense);
+                    }
+                    return BatchResult.success(index, operation, 201);
+                }
+                case UPDATE -> {
+                    // Written at once, so it replaces any older update still waiting in the write-behind queue.
+                    writeBehind.discard(operation.target().normalize());
+                    try (var updatedExpense = expensePatcher.update(operation.expense(), null)) {
+                        expenseChanges.saved(updatedExpense);
+                    }
+                    return BatchResult.success(index, operation, 200);
+                }
+                default -> {
+                    final URI resourceURI = operation.target().normalize();
+                    writeBehind.discard(resourceURI);
+                    podMetrics.pod("delete", () -> client.delete(resourceURI));
+                    expenseChanges.deleted(resourceURI);
+                    return BatchResult.success(index, operation, 204);
+                }
+            }
+        } catch (Exception e) {
+            // Checked first, as the Solid client reports a PodGuard refusal (429/503) as a SolidClientException.
+            final PodOverloadedException overloaded = PodOverloadedException.find(e);
+            if (overloaded != null) {
+                return BatchResult.failure(index, operation, overloaded.getStatus(), overloaded.getMessage());
+            }
+            if (e instanceof SolidClientException e1) {
+                printWriter.println(String.format("[%s] %s in batchExpenses:: %s", e1.getStatusCode(), e1.getClass().getName(), e1.getMessage()));
+                return BatchResult.failure(index, operation, e1.getStatusCode(), e1.getMessage());
+            }
+            e.printStackTrace();
+            return BatchResult.failure(index, operation, 500, e.getMessage());
+        }
+    }
+
+    /**
+     * Note 7b: Bulk import from CSV or JSON Lines
+     * Using the ExpenseImporter,
+     * - Reads the request body row by row and creates each Expense in the container, without printing it as Turtle.
+     * - Returns a report with counts, the checkpoint reached and the file listing the rows that failed.
+     * Send the same file with the same importId to resume an interrupted import.
+     * For example: curl -T expenses.csv ".../api/expenses/import?container=...&importId=onboarding-1&format=csv"
+     */
+    @PostMapping("/expenses/import")
+    public ExpenseImporter.ImportReport importExpenses(@RequestParam(value = "container") String containerURL,
+                                                       @RequestParam(value = "importId") String importId,
+                                                       @RequestParam(value = "format", defaultValue = "csv") String format,
+                                                       HttpServletRequest request) {
+        printWriter.println("ExpenseController:: importExpenses");
+        try (final var body = request.getInputStream()) {
+            String container = containerURL.endsWith("/") ? containerURL : containerURL + "/";
+            return expenseImporter.run(importId, ExpenseImporter.Format.valueOf(format.toUpperCase()),
+                    URI.create(container).normalize(), body);
+        } catch (IllegalArgumentException | IllegalStateException e1) {
+            printWriter.println(String.format("ExpenseController:: importExpenses:: %s", e1.getMessage()));
+        } catch (Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Note 7c: Reports the progress of a running import, or the checkpoint of a finished one.
+     */
+    @GetMapping("/expenses/import/status")
+    public ExpenseImporter.ImportReport getImportStatus(@RequestParam(value = "importId") String importId) {
+        try {
+            return expenseImporter.status(importId);
+        } catch (Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     /**
      * Note 9: Stores a non-RDF resource to a Pod
      *
-     * Using SolidNonRDFSource and the SolidSyncClient .create() method,
+     * Using the ReceiptUploader, which like the SolidSyncClient .create() method never overwrites a resource,
      * - Saves a non-RDF resource at the destinationURL.
+     * - Records the SHA-256 of its content in the ReceiptIndex, so the same receipt is not uploaded twice.
      */
     @PutMapping("/resource/nonRDF/add")
     public String addNonRDFFile(@RequestParam(value = "destinationURL") String destinationURL,
                                 @RequestParam(value = "file") MultipartFile file) {
         printWriter.println("In addNonRDFFile:: Save Non-RDF File to Pod.");
         try (final var fileStream = file.getInputStream()) {
-
-            SolidNonRDFSource myNonRDFFile = new SolidNonRDFSource(URI.create(destinationURL).normalize(), file.getContentType(), fileStream);
-            return client.create(myNonRDFFile).getIdentifier().toString();
+            return receiptUploader.upload(URI.create(destinationURL).normalize(), file.getContentType(),
+                    file.getSize(), fileStream).toString();
         } catch(PreconditionFailedException e1) {
             // Errors if the resource already exists
             printWriter.println(String.format("[%s] com.inrupt.client.solid.PreconditionFailedException in addNonRDFFile:: %s", e1.getStatusCode(), e1.getMessage()));
@@ -163,19 +569,91 @@ public class ExpenseController {
             // Errors if user does not have access to create
             printWriter.println(String.format("[%s] com.inrupt.client.solid.ForbiddenException in addNonRDFFile:: %s", e2.getStatusCode(), e2.getMessage()));
         } catch(Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Note 9a: Streams a non-RDF resource to a Pod
+     *
+     * Using the ReceiptUploader, instead of a multipart upload that is buffered first,
+     * - Pipes the raw request body to the destinationURL as it arrives, with the request's Content-Type
+     *   and Content-Length, so multi-megabyte files use a constant amount of memory.
+     * For example: curl -T receipt.pdf -H "Content-Type: application/pdf" ".../api/resource/nonRDF/stream?destinationURL=..."
+     */
+    @PutMapping("/resource/nonRDF/stream")
+    public String streamNonRDFFile(@RequestParam(value = "destinationURL") String destinationURL,
+                                   HttpServletRequest request) {
+        printWriter.println("In streamNonRDFFile:: Stream Non-RDF File to Pod.");
+        try (final var body = request.getInputStream()) {
+            return receiptUploader.upload(URI.create(destinationURL).normalize(), request.getContentType(),
+                    request.getContentLengthLong(), body).toString();
+        } catch(PreconditionFailedException e1) {
+            // Errors if the resource already exists
+            printWriter.println(String.format("[%s] com.inrupt.client.solid.PreconditionFailedException in streamNonRDFFile:: %s", e1.getStatusCode(), e1.getMessage()));
+        } catch(ForbiddenException e2) {
+            // Errors if user does not have access to create
+            printWriter.println(String.format("[%s] com.inrupt.client.solid.ForbiddenException in streamNonRDFFile:: %s", e2.getStatusCode(), e2.getMessage()));
+        } catch(Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
             e.printStackTrace();
         }
 
         return null;
     }
 
+    /**
+     * Note 10a: Streams a receipt to a Pod and Attach to an Expense
+     * Like addReceiptToExpense, but the receipt is the raw request body, streamed like streamNonRDFFile().
+     * When the client sends a Repr-Digest (or Content-Digest) header with the body's SHA-256, and that content is
+     * already in the Pod, the body is hashed but not uploaded, and the existing resource is linked instead.
+     * A body that does not match its digest is answered with 400 and nothing is linked.
+     */
+    @PutMapping("/expenses/receipts/stream")
+    public Expense streamReceiptToExpense(@RequestParam(value = "destinationURL") String destinationURL,
+                                          @RequestParam(value = "expenseURL") String expenseURL,
+                                          HttpServletRequest request) {
+        printWriter.println("In streamReceiptToExpense: Stream Receipt File to Pod and Update Associated Expense.");
+        try (final var body = request.getInputStream()) {
+            String digest = request.getHeader("Repr-Digest") != null ? request.getHeader("Repr-Digest") : request.getHeader("Content-Digest");
+            URI receipt = receiptUploader.uploadOrLink(URI.create(destinationURL).normalize(), request.getContentType(),
+                    request.getContentLengthLong(), body, ReceiptUploader.sha256FromDigest(digest));
+            writeBehind.addReceipt(URI.create(expenseURL).normalize(), receipt.toString());
+            expensePatcher.addReceipt(URI.create(expenseURL).normalize(), receipt.toString());
+            return getExpense(expenseURL, null);
+        } catch(IllegalArgumentException e1) {
+            // Errors if the body does not match the digest the client sent
+            printWriter.println(String.format("ExpenseController:: streamReceiptToExpense:: %s", e1.getMessage()));
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e1.getMessage());
+        } catch(PreconditionFailedException e3) {
+            // Errors if the resource already exists
+            printWriter.println(String.format("[%s] com.inrupt.client.solid.PreconditionFailedException in streamReceiptToExpense:: %s", e3.getStatusCode(), e3.getMessage()));
+        } catch(NotFoundException e4) {
+            // Errors if there is no Expense to link the receipt to
+            printWriter.println(String.format("[%s] com.inrupt.client.solid.NotFoundException in streamReceiptToExpense:: %s", e4.getStatusCode(), e4.getMessage()));
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e4.getMessage());
+        } catch(ForbiddenException e2) {
+            // Errors if user does not have access to create the receipt or update the Expense resource
+            printWriter.println(String.format("[%s] com.inrupt.client.solid.ForbiddenException in streamReceiptToExpense:: %s", e2.getStatusCode(), e2.getMessage()));
+        } catch(Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     /**
      * Note 10: Stores a non-RDF resource (image of the receipt) to a Pod and Attach to an Expense
      * Using methods defined as part of getting started, addReceiptToExpense:
-     * - Calls addNonRDFFile() to store the receipt to a Pod
-     * - Calls getExpense() to fetch the associated Expense RDF resource.
-     * - Calls the Expense's setter `addReceipt` to add the link to the saved receipt.
-     * - Calls updateExpense() to save the updated Expense.
+     * - Hashes the receipt and, when the ReceiptIndex knows a resource in the Pod with the same content, uses it;
+     *   otherwise calls addNonRDFFile() to store the receipt to a Pod
+     * - Calls ExpensePatcher.addReceipt() to add the link to the saved receipt with a single small PATCH,
+     *   so concurrent receipt uploads to the same Expense cannot overwrite each other; 404 when there is no such Expense.
+     *   An update of the Expense still waiting in the WriteBehindQueue gets the link too, so its flush keeps it.
+     * - Calls getExpense() to return the updated Expense.
      */
     @PutMapping("/expenses/receipts/add")
     public Expense addReceiptToExpense(@RequestParam(value = "destinationURL") String destinationURL,
@@ -183,24 +661,52 @@ public class ExpenseController {
                                        @RequestParam(value = "expenseURL") String expenseURL) {
         printWriter.println("In addReceiptToExpense: Save Receipt File to Pod and Update Associated Expense.");
         try {
-            String receiptLocation = addNonRDFFile(destinationURL, file);
+            String sha256;
+            try (final var fileStream = file.getInputStream()) {
+                sha256 = ReceiptIndex.sha256(fileStream);
+            }
+            URI existing = receiptUploader.existing(sha256, file.getSize());
+            String receiptLocation = existing != null ? existing.toString() : addNonRDFFile(destinationURL, file);
             if (receiptLocation != null) {
-                Expense expense = getExpense(expenseURL);
-                expense.addReceipt(receiptLocation);
-                return updateExpense(expense);
+                writeBehind.addReceipt(URI.create(expenseURL).normalize(), receiptLocation);
+                expensePatcher.addReceipt(URI.create(expenseURL).normalize(), receiptLocation);
+                return getExpense(expenseURL, null);
             } else {
                 printWriter.println("Error adding receipt");
                 return null;
             }
+        } catch(NotFoundException e4) {
+            // Errors if there is no Expense to link the receipt to
+            printWriter.println(String.format("[%s] com.inrupt.client.solid.NotFoundException in addReceiptToExpense:: %s", e4.getStatusCode(), e4.getMessage()));
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e4.getMessage());
         } catch(ForbiddenException e2) {
             // Errors if user does not have access to read or update the Expense resource
             printWriter.println(String.format("[%s] com.inrupt.client.solid.ForbiddenException in addReceiptToExpense:: %s", e2.getStatusCode(), e2.getMessage()));
         } catch(Exception e) {
+            PodOverloadedException.rethrowIfOverloaded(e);
             e.printStackTrace();
         }
         return null;
     }
 
+    /**
+     * Note 10b: Rebuilds the ReceiptIndex by hashing the receipts in a container
+     * Use after the index file was lost, or when receipts were added to the Pod outside this application.
+     */
+    @PostMapping("/expenses/receipts/index/rebuild")
+    public int rebuildReceiptIndex(@RequestParam(value = "container") String containerURL) {
+        printWriter.println("ExpenseController:: rebuildReceiptIndex");
+        return receiptIndex.rebuild(URI.create(containerURL).normalize());
+    }
+
+    private byte[] writeJson(Expense expense) {
+        try {
+            return objectMapper.writeValueAsBytes(expense);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Note 8: Prints the expense resource in Turtle.
      */
@@ -209,9 +715,16 @@ public class ExpenseController {
         printWriter.println("ExpenseController:: printExpenseAsTurtle");
         ByteArrayOutputStream content = new ByteArrayOutputStream();
         try  {
-            expense.serialize(RDFSyntax.TURTLE, content);
+            podMetrics.serialization("turtle", "write", () -> {
+                try {
+                    expense.serialize(RDFSyntax.TURTLE, content);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return content;
+            });
             printWriter.println(content.toString("UTF-8"));
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             e.printStackTrace();
         }
     }
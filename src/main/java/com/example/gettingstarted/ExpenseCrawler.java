@@ -0,0 +1,128 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.solid.SolidClientException;
+import com.inrupt.client.solid.SolidContainer;
+import com.inrupt.client.solid.SolidSyncClient;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Lists the Expense resources of an LDP container and fetches them concurrently.
+ * <p>
+ * At most expenses.crawl.parallelism reads are in flight at any time, across all callers,
+ * and each caller holds no more than that many fetched Expenses, so the memory used does
+ * not depend on the size of the container.
+ */
+@Component
+public class ExpenseCrawler {
+
+    private final SolidSyncClient client;
+    private final PodMetrics podMetrics;
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
+    public ExpenseCrawler(SolidSyncClient client, PodMetrics podMetrics,
+                          @Value("${expenses.crawl.parallelism:16}") int parallelism) {
+        this.client = client;
+        this.podMetrics = podMetrics;
+        this.parallelism = parallelism;
+        this.executor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the identifiers of the non-container resources in the container, sorted,
+     * so callers can page through them with a stable cursor.
+     */
+    public List<URI> list(URI container) {
+        try (var resource = podMetrics.pod("readContainer", () -> client.read(container, SolidContainer.class))) {
+            return resource.getResources().stream()
+                    .map(contained -> contained.getIdentifier())
+                    .filter(identifier -> !identifier.getPath().endsWith("/"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Reads each identifier as an Expense and hands it to the consumer in order of arrival.
+     * The consumer always runs on the calling thread. Resources that cannot be read are logged and skipped.
+     */
+    public void fetch(List<URI> identifiers, Consumer<Expense> consumer) {
+        fetch(identifiers, consumer, identifier -> { });
+    }
+
+    /**
+     * Like fetch, but also hands the identifier of each resource that could not be read to unreadable,
+     * on the calling thread.
+     */
+    public void fetch(List<URI> identifiers, Consumer<Expense> consumer, Consumer<URI> unreadable) {
+        final CompletionService<Expense> completion = new ExecutorCompletionService<>(executor);
+        final Map<Future<Expense>, URI> pending = new HashMap<>();
+        final Iterator<URI> remaining = identifiers.iterator();
+        try {
+            while (pending.size() < parallelism && remaining.hasNext()) {
+                submit(completion, pending, remaining.next());
+            }
+            while (!pending.isEmpty()) {
+                final Future<Expense> done = completion.take();
+                final URI identifier = pending.remove(done);
+                if (remaining.hasNext()) {
+                    submit(completion, pending, remaining.next());
+                }
+                final Expense expense = result(done);
+                if (expense != null) {
+                    consumer.accept(expense);
+                } else {
+                    unreadable.accept(identifier);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching expenses", e);
+        } finally {
+            pending.keySet().forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void submit(CompletionService<Expense> completion, Map<Future<Expense>, URI> pending, URI identifier) {
+        pending.put(completion.submit(() -> {
+            try (var expense = podMetrics.pod("read", () -> client.read(identifier, Expense.class))) {
+                return expense;
+            }
+        }), identifier);
+    }
+
+    private Expense result(Future<Expense> done) throws InterruptedException {
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SolidClientException e1) {
+                printWriter.println(String.format("[%s] %s in ExpenseCrawler:: %s", e1.getStatusCode(), e1.getClass().getName(), e1.getMessage()));
+            } else {
+                e.getCause().printStackTrace();
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.gettingstarted;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.rdf.api.BlankNode;
+import org.apache.commons.rdf.api.RDFTerm;
+import org.apache.commons.rdf.api.Triple;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Dumps every Expense in a container to one stream, for backups and analytics.
+ * <p>
+ * The container is crawled with the ExpenseCrawler, so at most expenses.crawl.parallelism resources are
+ * held at a time, and each is written as soon as it arrives: as N-Quads with the resource URI as graph name,
+ * as Turtle (N-Triples lines after a "# &lt;uri&gt;" comment per resource, without prefixes, so the sections
+ * concatenate to one valid document), or as one line of the Expense JSON. Blank nodes are relabelled per resource
+ * in both RDF formats, as each resource's labels are only unique within that resource and would otherwise merge.
+ * The order of the resources is the order in which the Pod answered.
+ * <p>
+ * Resources that cannot be read are listed at the end, so an incomplete export never looks complete: as
+ * "# unreadable: &lt;uri&gt;" comment lines in N-Quads and Turtle, and as a last {"unreadable": [...]} line in NDJSON.
+ */
+@Component
+public class ExpenseExporter {
+
+    private final ExpenseCrawler expenseCrawler;
+    private final PodMetrics podMetrics;
+    private final ObjectMapper objectMapper;
+
+    public ExpenseExporter(ExpenseCrawler expenseCrawler, PodMetrics podMetrics, ObjectMapper objectMapper) {
+        this.expenseCrawler = expenseCrawler;
+        this.podMetrics = podMetrics;
+        this.objectMapper = objectMapper;
+    }
+
+    public enum Format {
+        NQUADS("application/n-quads", "nq"),
+        TURTLE("text/turtle", "ttl"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public record ExportReport(long exported, List<URI> unreadable) {
+    }
+
+    /**
+     * Writes every Expense in the container to the output, gzip-compressed if asked, and returns how many were
+     * written and which resources could not be read; those are also listed at the end of the output.
+     */
+    public ExportReport export(URI container, Format format, boolean gzip, OutputStream output) throws IOException {
+        final OutputStream out = gzip ? new GZIPOutputStream(output, 64 * 1024) : output;
+        final long[] written = {0};
+        final List<URI> unreadable = new ArrayList<>();
+        expenseCrawler.fetch(expenseCrawler.list(container), expense -> {
+            try {
+                final long resource = written[0];
+                out.write(podMetrics.serialization(format.name().toLowerCase(), "write", () -> serialize(expense, format, resource)));
+                written[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, unreadable::add);
+        if (!unreadable.isEmpty()) {
+            out.write(trailer(unreadable, format));
+        }
+        if (gzip) {
+            ((GZIPOutputStream) out).finish();
+        }
+        out.flush();
+        return new ExportReport(written[0], unreadable);
+    }
+
+    /**
+     * One line per triple, each ended by the suffix, with the blank nodes relabelled for the resource.
+     */
+    private static String statements(Expense expense, long resource, String suffix) {
+        final Map<BlankNode, String> labels = new HashMap<>();
+        final StringBuilder statements = new StringBuilder();
+        expense.getGraph().stream().forEach((Triple triple) -> statements
+                .append(ntriples(triple.getSubject(), labels, resource)).append(' ')
+                .append(triple.getPredicate().ntriplesString()).append(' ')
+                .append(ntriples(triple.getObject(), labels, resource))
+                .append(suffix));
+        return statements.toString();
+    }
+
+    private static String ntriples(RDFTerm term, Map<BlankNode, String> labels, long resource) {
+        if (!(term instanceof BlankNode blankNode)) return term.ntriplesString();
+        return labels.computeIfAbsent(blankNode, node -> "_:r" + resource + "b" + labels.size());
+    }
+
+    private byte[] trailer(List<URI> unreadable, Format format) throws IOException {
+        if (format == Format.NDJSON) {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            objectMapper.writeValue(content, Map.of("unreadable", unreadable));
+            content.write('\n');
+            return content.toByteArray();
+        }
+        final StringBuilder comments = new StringBuilder();
+        unreadable.forEach(identifier -> comments.append("# unreadable: <").append(identifier).append(">\n"));
+        return comments.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param resource the number of the resource in the export, which makes its blank node labels unique
+     */
+    private byte[] serialize(Expense expense, Format format, long resource) {
+        try {
+            switch (format) {
+                case NQUADS -> {
+                    return statements(expense, resource, " <" + expense.getIdentifier() + "> .\n")
+                            .getBytes(StandardCharsets.UTF_8);
+                }
+                case TURTLE -> {
+                    return ("# " + expense.getIdentifier() + "\n" + statements(expense, resource, " .\n") + "\n")
+                            .getBytes(StandardCharsets.UTF_8);
+                }
+                default -> {
+                    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    objectMapper.writeValue(content, expense);
+                    content.write('\n');
+                    return content.toByteArray();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.example.gettingstarted;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inrupt.client.solid.PreconditionFailedException;
+import com.inrupt.client.solid.SolidClientException;
+import com.inrupt.client.solid.SolidSyncClient;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Streams expenses from CSV or JSON Lines into a container in the Pod.
+ * <p>
+ * Rows are read one at a time and created with at most expenses.import.parallelism requests in flight;
+ * reading waits while that many rows are outstanding, so memory use does not depend on the input size.
+ * Transient failures (5xx, 408, 429, I/O errors) are retried with exponential backoff up to
+ * expenses.import.max-attempts times. Rows that still fail are written with their status and message to
+ * &lt;importId&gt;.errors.csv in expenses.import.dir, and their fields, with the identifier they were given, as
+ * JSON Lines to &lt;importId&gt;.failed.jsonl, which can be sent again as an import of its own once fixed.
+ * Rows that cannot be parsed at all, including a CSV row with an unterminated quote, are only listed in the
+ * error file; the import goes on with the next row.
+ * <p>
+ * The number of the last row up to which every row is done is saved in &lt;importId&gt;.checkpoint. Sending the
+ * same file again with the same importId skips the rows before the checkpoint; rows after it that the earlier run
+ * already listed as failed are not listed twice. Rows without an identifier get
+ * one derived from the importId and row number, so a row created just before a crash is found to exist (412)
+ * on resume and is counted as skipped instead of being created twice.
+ * <p>
+ * CSV input has a header row naming the columns; JSON Lines input has one Expense object per line. Both use
+ * the Expense JSON field names: identifier, merchantProvider, expenseDate (ISO date or instant, or epoch
+ * milliseconds), description, amount, currency, category and receipts (separated by ; in CSV).
+ */
+@Component
+public class ExpenseImporter {
+
+    private static final Pattern RECEIPT_SEPARATOR = Pattern.compile("\\s*;\\s*");
+
+    private final SolidSyncClient client;
+    private final ExpenseChangeTracker expenseChanges;
+    private final PodMetrics podMetrics;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int parallelism;
+    private final int maxAttempts;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, Run> running = new ConcurrentHashMap<>();
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
+    public ExpenseImporter(SolidSyncClient client, ExpenseChangeTracker expenseChanges, PodMetrics podMetrics,
+                           ObjectMapper objectMapper,
+                           @Value("${expenses.import.dir:data/imports}") String directory,
+                           @Value("${expenses.import.parallelism:16}") int parallelism,
+                           @Value("${expenses.import.max-attempts:5}") int maxAttempts) {
+        this.client = client;
+        this.expenseChanges = expenseChanges;
+        this.podMetrics = podMetrics;
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.parallelism = parallelism;
+        this.maxAttempts = maxAttempts;
+        this.executor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public enum Format { CSV, JSONL }
+
+    public record ImportReport(String importId, long rowsRead, long created, long skipped, long failed,
+                               long checkpoint, boolean done, String errorFile) {
+    }
+
+    /**
+     * Imports the input on the calling thread and returns the final report.
+     * Only one import per importId may run at a time.
+     */
+    public ImportReport run(String importId, Format format, URI container, InputStream input) throws IOException {
+        checkImportId(importId);
+        Files.createDirectories(directory);
+        final long checkpoint = readCheckpoint(importId);
+        final Run run = new Run(importId, checkpoint, reportedFailures(importId, checkpoint));
+        if (running.putIfAbsent(importId, run) != null) {
+            throw new IllegalStateException("Import " + importId + " is already running");
+        }
+        printWriter.println(String.format("ExpenseImporter:: %s starting after row %d", importId, run.watermark));
+
+        final Semaphore permits = new Semaphore(parallelism);
+        try (var errors = Files.newBufferedWriter(errorFile(importId), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             var failedRows = Files.newBufferedWriter(failedRowsFile(importId), StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            run.errors = errors;
+            run.failedRows = failedRows;
+            try {
+                submitRows(run, format == Format.CSV ? csvRows(reader) : jsonRows(reader), container, permits);
+            } finally {
+                // Wait for the rows in flight before the error files are closed.
+                permits.acquireUninterruptibly(parallelism);
+                permits.release(parallelism);
+            }
+            run.saveCheckpoint(directory, true);
+        } finally {
+            running.remove(importId);
+        }
+        final ImportReport report = run.report(true, directory);
+        printWriter.println(String.format("ExpenseImporter:: %s", report));
+        return report;
+    }
+
+    private void submitRows(Run run, Rows rows, URI container, Semaphore permits) throws IOException {
+        long row = 0;
+        while (true) {
+            Map<String, String> fields;
+            try {
+                fields = rows.next();
+            } catch (JsonProcessingException | CsvReader.MalformedCsvException | IllegalArgumentException e) {
+                row++;
+                run.rowsRead.incrementAndGet();
+                if (row > run.startedAfter) run.failed(row, null, 400, "Unreadable row: " + e.getMessage(), null);
+                continue;
+            }
+            if (fields == null) return;
+            row++;
+            run.rowsRead.incrementAndGet();
+            if (row <= run.startedAfter) continue;
+
+            final long rowNumber = row;
+            final Expense expense;
+            try {
+                expense = toExpense(fields, container, run.importId, rowNumber);
+            } catch (RuntimeException e) {
+                run.failed(rowNumber, fields.get("identifier"), 400, "Invalid row: " + message(e), record(fields, null));
+                continue;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import " + run.importId + " was interrupted");
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        create(run, rowNumber, expense, fields);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down: give the permit back, so run() does not wait for a row that never started.
+                permits.release();
+                throw e;
+            }
+            if (rowNumber % 10_000 == 0) {
+                printWriter.println(String.format("ExpenseImporter:: %s", run.report(false, directory)));
+            }
+        }
+    }
+
+    /**
+     * The progress of a running import, or the checkpoint of a finished one; null if the importId is unknown.
+     */
+    public ImportReport status(String importId) throws IOException {
+        checkImportId(importId);
+        final Run run = running.get(importId);
+        if (run != null) return run.report(false, directory);
+        if (!Files.exists(checkpointFile(importId))) return null;
+        return new ImportReport(importId, 0, 0, 0, 0, readCheckpoint(importId), true, errorFile(importId).toString());
+    }
+
+    private void create(Run run, long row, Expense expense, Map<String, String> fields) {
+        for (int attempt = 1; ; attempt++) {
+            try (var created = podMetrics.pod("create", () -> client.create(expense))) {
+                expenseChanges.saved(created);
+                run.created.incrementAndGet();
+                run.done(row, directory);
+                return;
+            } catch (PreconditionFailedException e) {
+                run.skipped.incrementAndGet();
+                run.done(row, directory);
+                return;
+            } catch (RuntimeException e) {
+                // Checked first, as the Solid client reports a PodGuard refusal (429/503) as a SolidClientException.
+                final PodOverloadedException overloaded = PodOverloadedException.find(e);
+                final int status = overloaded != null ? overloaded.getStatus()
+                        : e instanceof SolidClientException e1 ? e1.getStatusCode() : 0;
+                if (!transientFailure(e) || attempt >= maxAttempts) {
+                    run.failed(row, String.valueOf(expense.getIdentifier()), status, message(e),
+                            record(fields, expense.getIdentifier()));
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(Math.min(10_000L, 100L << (attempt - 1)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                run.failed(row, String.valueOf(expense.getIdentifier()), 0, "Interrupted",
+                        record(fields, expense.getIdentifier()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * The row as one line of JSON for the failed rows file, with the identifier it was given if any, so sending
+     * it again cannot create the Expense a second time.
+     */
+    private String record(Map<String, String> fields, URI identifier) {
+        final Map<String, String> record = new HashMap<>(fields);
+        if (identifier != null) record.put("identifier", identifier.toString());
+        try {
+            return objectMapper.writeValueAsString(record);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static String message(Throwable failure) {
+        return failure.getMessage() != null ? failure.getMessage() : failure.toString();
+    }
+
+    private static void checkImportId(String importId) {
+        if (!importId.matches("[A-Za-z0-9_-][A-Za-z0-9._-]*")) {
+            throw new IllegalArgumentException("importId may only contain letters, digits, '.', '_' and '-'");
+        }
+    }
+
+    private static boolean isTransientStatus(int status) {
+        return status >= 500 || status == 408 || status == 429;
+    }
+
+    /**
+     * Whether a failed create may succeed when retried: a PodGuard refusal or an I/O error anywhere among the
+     * causes, or a SolidClientException with a transient status (0 when no response arrived). Anything else,
+     * such as a bug in building the request, fails the row at once.
+     */
+    static boolean transientFailure(Throwable failure) {
+        if (PodOverloadedException.find(failure) != null) return true;
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) return true;
+            if (cause.getCause() == cause) break;
+        }
+        return failure instanceof SolidClientException e && (e.getStatusCode() == 0 || isTransientStatus(e.getStatusCode()));
+    }
+
+    Expense toExpense(Map<String, String> fields, URI container, String importId, long row) {
+        final String identifier = blankToNull(fields.get("identifier"));
+        final String date = blankToNull(fields.get("expenseDate"));
+        final String amount = blankToNull(fields.get("amount"));
+        final String receipts = blankToNull(fields.get("receipts"));
+        return new Expense(
+                identifier != null ? URI.create(identifier).normalize() : container.resolve(importId + "-" + row),
+                blankToNull(fields.get("merchantProvider")),
+                date == null ? null : parseDate(date),
+                blankToNull(fields.get("description")),
+                amount == null ? null : new BigDecimal(amount),
+                blankToNull(fields.get("currency")),
+                blankToNull(fields.get("category")),
+                receipts == null ? new String[0] : RECEIPT_SEPARATOR.split(receipts));
+    }
+
+    private static Date parseDate(String value) {
+        if (value.chars().allMatch(Character::isDigit)) return new Date(Long.parseLong(value));
+        if (value.length() == 10) return Date.from(LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant());
+        return Date.from(Instant.parse(value));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private interface Rows {
+        Map<String, String> next() throws IOException;
+    }
+
+    private static Rows csvRows(BufferedReader reader) throws IOException {
+        final CsvReader csv = new CsvReader(reader);
+        final List<String> header = csv.next();
+        if (header == null) return () -> null;
+        return () -> {
+            final List<String> values = csv.next();
+            if (values == null) return null;
+            if (values.size() > header.size()) {
+                throw new IllegalArgumentException("Row has " + values.size() + " fields, header has " + header.size());
+            }
+            final Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                fields.put(header.get(i).trim(), values.get(i));
+            }
+            return fields;
+        };
+    }
+
+    private Rows jsonRows(BufferedReader reader) {
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) return null;
+            } while (line.isBlank());
+            final JsonNode node = objectMapper.readTree(line);
+            final Map<String, String> fields = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                final JsonNode value = field.getValue();
+                if (value.isArray()) {
+                    final List<String> items = new ArrayList<>();
+                    value.forEach(item -> items.add(item.asText()));
+                    fields.put(field.getKey(), String.join(";", items));
+                } else if (!value.isNull()) {
+                    fields.put(field.getKey(), value.asText());
+                }
+            });
+            return fields;
+        };
+    }
+
+    private Path checkpointFile(String importId) {
+        return directory.resolve(importId + ".checkpoint");
+    }
+
+    private Path errorFile(String importId) {
+        return directory.resolve(importId + ".errors.csv");
+    }
+
+    private Path failedRowsFile(String importId) {
+        return directory.resolve(importId + ".failed.jsonl");
+    }
+
+    /**
+     * The rows after the checkpoint that an earlier run of the import already listed in the error file. They are
+     * read again on resume, and are not listed a second time if they fail again.
+     */
+    private Set<Long> reportedFailures(String importId, long checkpoint) throws IOException {
+        final Set<Long> rows = new HashSet<>();
+        if (!Files.exists(errorFile(importId))) return rows;
+        try (var lines = Files.lines(errorFile(importId), StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                final int comma = line.indexOf(',');
+                try {
+                    final long row = Long.parseLong(comma < 0 ? line : line.substring(0, comma));
+                    if (row > checkpoint) rows.add(row);
+                } catch (NumberFormatException e) {
+                    // Not a line this importer wrote; ignored.
+                }
+            });
+        }
+        return rows;
+    }
+
+    private long readCheckpoint(String importId) throws IOException {
+        final Path checkpoint = checkpointFile(importId);
+        return Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0;
+    }
+
+    /**
+     * One import in progress. Completed rows above the watermark are kept until the rows below them are done;
+     * there are never more of them than requests in flight.
+     */
+    private static final class Run {
+        final String importId;
+        final long startedAfter;
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong created = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final TreeSet<Long> doneAboveWatermark = new TreeSet<>();
+        final Set<Long> reportedBefore;
+        long watermark;
+        long savedAt = System.nanoTime();
+        BufferedWriter errors;
+        BufferedWriter failedRows;
+
+        Run(String importId, long checkpoint, Set<Long> reportedBefore) {
+            this.importId = importId;
+            this.reportedBefore = reportedBefore;
+            this.startedAfter = checkpoint;
+            this.watermark = checkpoint;
+        }
+
+        synchronized void done(long row, Path directory) {
+            doneAboveWatermark.add(row);
+            while (!doneAboveWatermark.isEmpty() && doneAboveWatermark.first() == watermark + 1) {
+                watermark = doneAboveWatermark.pollFirst();
+            }
+            if (System.nanoTime() - savedAt > 1_000_000_000L) saveCheckpoint(directory, false);
+        }
+
+        /**
+         * A failed row is done as far as the checkpoint is concerned; it is retried by importing the failed rows
+         * file, not on resume. The record is the row as JSON, or null if it could not be parsed. A row an earlier
+         * run already wrote to the error files, after its last checkpoint, is not written again.
+         */
+        synchronized void failed(long row, String identifier, int status, String message, String record) {
+            failed.incrementAndGet();
+            if (!reportedBefore.remove(row)) {
+                try {
+                    errors.write(row + "," + csv(identifier) + "," + status + "," + csv(message));
+                    errors.newLine();
+                    errors.flush();
+                    if (record != null) {
+                        failedRows.write(record);
+                        failedRows.newLine();
+                        failedRows.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to write the error file of import " + importId, e);
+                }
+            }
+            doneAboveWatermark.add(row);
+            while (!doneAboveWatermark.isEmpty() && doneAboveWatermark.first() == watermark + 1) {
+                watermark = doneAboveWatermark.pollFirst();
+            }
+        }
+
+        synchronized void saveCheckpoint(Path directory, boolean force) {
+            if (!force && System.nanoTime() - savedAt < 1_000_000_000L) return;
+            final Path checkpoint = directory.resolve(importId + ".checkpoint");
+            final Path written = directory.resolve(importId + ".checkpoint.tmp");
+            try {
+                Files.writeString(written, Long.toString(watermark));
+                Files.move(written, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                savedAt = System.nanoTime();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to save the checkpoint of import " + importId, e);
+            }
+        }
+
+        synchronized ImportReport report(boolean done, Path directory) {
+            return new ImportReport(importId, rowsRead.get(), created.get(), skipped.get(), failed.get(), watermark,
+                    done, directory.resolve(importId + ".errors.csv").toString());
+        }
+
+        private static String csv(String value) {
+            if (value == null) return "";
+            return "\"" + value.replace("\"", "\"\"").replace("\r", " ").replace("\n", " ") + "\"";
+        }
+    }
+}
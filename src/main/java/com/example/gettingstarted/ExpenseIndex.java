@@ -0,0 +1,353 @@
+package com.example.gettingstarted;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A local secondary index over Expense category, date, merchant, amount and currency.
+ * <p>
+ * The index is kept in memory as hash maps for the equality fields and sorted maps for the
+ * date and amount ranges, so searches never touch the Pod. Every change is appended to an
+ * IndexJournal (expenses.index.file), which is replayed on startup and compacted when it grows
+ * well past the number of live entries. When the journal is missing and expenses.index.container
+ * is set, the index is rebuilt from the Pod in the background.
+ */
+@Component
+public class ExpenseIndex {
+
+    private final URI container;
+    private final ExpenseCrawler expenseCrawler;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
+    private final State state = new State();
+    private final IndexJournal<URI, IndexEntry> journal;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public ExpenseIndex(ExpenseCrawler expenseCrawler,
+                        @Value("${expenses.index.file:data/expense-index.log}") String file,
+                        @Value("${expenses.index.container:}") String container) {
+        this.expenseCrawler = expenseCrawler;
+        this.journal = new IndexJournal<>(Path.of(file), "expense index", new Codec(), state.entries);
+        this.container = container.isBlank() ? null : URI.create(container).normalize();
+    }
+
+    /**
+     * Notified of every change with the entry before and after it; either may be null.
+     * Listeners run under the index write lock, so they must be quick and must not call back into the index.
+     */
+    public interface Listener {
+
+        void changed(IndexEntry previous, IndexEntry current);
+
+        /**
+         * Called with every entry when the listener is added. A rebuild is reported through changed().
+         */
+        void reloaded(Collection<IndexEntry> entries);
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        final boolean existed = journal.exists();
+        lock.writeLock().lock();
+        try {
+            journal.open((identifier, entry) -> state.put(entry), (identifier, entry) -> state.remove(identifier));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (existed) {
+            printWriter.println(String.format("ExpenseIndex:: loaded %d entries from %s", size(), journal.file()));
+        } else if (container != null) {
+            final Thread rebuild = new Thread(() -> rebuild(container), "expense-index-rebuild");
+            rebuild.setDaemon(true);
+            rebuild.start();
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            journal.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addListener(Listener listener) {
+        lock.writeLock().lock();
+        try {
+            listeners.add(listener);
+            listener.reloaded(List.copyOf(state.entries.values()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the entry for the Expense and returns the entry it replaced, if any.
+     */
+    public IndexEntry put(IndexEntry entry) {
+        lock.writeLock().lock();
+        try {
+            final IndexEntry previous = state.put(entry);
+            journal.put(entry.identifier(), entry);
+            listeners.forEach(listener -> listener.changed(previous, entry));
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public IndexEntry remove(URI identifier) {
+        lock.writeLock().lock();
+        try {
+            final IndexEntry previous = state.remove(identifier);
+            journal.remove(identifier, null);
+            if (previous != null) listeners.forEach(listener -> listener.changed(previous, null));
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<IndexEntry> search(ExpenseQuery query, int limit) {
+        lock.readLock().lock();
+        try {
+            return state.candidates(query).stream()
+                    .map(state.entries::get)
+                    .filter(query::matches)
+                    .sorted(Comparator.comparing(IndexEntry::expenseDate, Comparator.nullsLast(Comparator.naturalOrder()))
+                            .thenComparing(IndexEntry::identifier))
+                    .limit(limit)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the entries of the Expenses in the container with those currently in the Pod and returns how many
+     * there are; entries of other containers are kept. Changes made while the crawl runs are re-applied on top of
+     * the crawled state. Rebuilds run one at a time; a second caller waits for the first.
+     */
+    public int rebuild(URI source) {
+        return journal.rebuild(() -> rebuildAlone(source));
+    }
+
+    private int rebuildAlone(URI source) {
+        printWriter.println("ExpenseIndex:: rebuilding from " + source);
+        lock.writeLock().lock();
+        try {
+            journal.startRecording();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        final Map<URI, IndexEntry> rebuilt = new HashMap<>();
+        try {
+            expenseCrawler.fetch(expenseCrawler.list(source),
+                    expense -> rebuilt.put(expense.getIdentifier(), IndexEntry.of(expense)));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                journal.stopRecording();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (IndexJournal.Change<URI, IndexEntry> change : journal.stopRecording()) {
+                if (!contains(source, change.key())) continue;
+                if (change.removed()) rebuilt.remove(change.key());
+                else rebuilt.put(change.key(), change.value());
+            }
+            // Listeners see only the differences, so totals over other containers are left as they are.
+            for (URI identifier : List.copyOf(state.entries.keySet())) {
+                if (contains(source, identifier) && !rebuilt.containsKey(identifier)) {
+                    final IndexEntry previous = state.remove(identifier);
+                    listeners.forEach(listener -> listener.changed(previous, null));
+                }
+            }
+            for (IndexEntry entry : rebuilt.values()) {
+                final IndexEntry previous = state.put(entry);
+                if (!entry.equals(previous)) listeners.forEach(listener -> listener.changed(previous, entry));
+            }
+            journal.compact();
+            printWriter.println(String.format("ExpenseIndex:: rebuilt %d entries from %s, %d in total",
+                    rebuilt.size(), source, state.entries.size()));
+            return rebuilt.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the resource is directly in the container, as listed by ExpenseCrawler.list().
+     */
+    static boolean contains(URI container, URI identifier) {
+        final String prefix = container.toString().endsWith("/") ? container.toString() : container + "/";
+        final String resource = identifier.toString();
+        return resource.startsWith(prefix) && resource.indexOf('/', prefix.length()) < 0;
+    }
+
+    /**
+     * Journal records: the identifier, then for a put the indexed fields.
+     */
+    private static final class Codec implements IndexJournal.Codec<URI, IndexEntry> {
+
+        @Override
+        public void write(DataOutputStream out, boolean remove, URI identifier, IndexEntry entry) throws IOException {
+            out.writeUTF(identifier.toString());
+            if (!remove) {
+                writeNullable(out, entry.category());
+                out.writeLong(entry.expenseDate() == null ? Long.MIN_VALUE : entry.expenseDate().toEpochMilli());
+                writeNullable(out, entry.merchantProvider());
+                writeNullable(out, entry.amount() == null ? null : entry.amount().toPlainString());
+                writeNullable(out, entry.currency());
+            }
+        }
+
+        @Override
+        public IndexJournal.Change<URI, IndexEntry> read(DataInputStream in, boolean remove) throws IOException {
+            final URI identifier = URI.create(in.readUTF());
+            if (remove) return new IndexJournal.Change<>(identifier, null, true);
+            final String category = readNullable(in);
+            final long date = in.readLong();
+            final String merchant = readNullable(in);
+            final String amount = readNullable(in);
+            final String currency = readNullable(in);
+            return new IndexJournal.Change<>(identifier, new IndexEntry(identifier, category,
+                    date == Long.MIN_VALUE ? null : Instant.ofEpochMilli(date),
+                    merchant, amount == null ? null : new BigDecimal(amount), currency), false);
+        }
+
+        private static void writeNullable(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) out.writeUTF(value);
+        }
+
+        private static String readNullable(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+
+    /**
+     * The in-memory index structures. Not thread safe; guarded by the ExpenseIndex lock.
+     */
+    private static final class State {
+        final Map<URI, IndexEntry> entries = new HashMap<>();
+        final Map<String, Set<URI>> byCategory = new HashMap<>();
+        final Map<String, Set<URI>> byCurrency = new HashMap<>();
+        final Map<String, Set<URI>> byMerchant = new HashMap<>();
+        final NavigableMap<Instant, Set<URI>> byDate = new TreeMap<>();
+        final NavigableMap<BigDecimal, Set<URI>> byAmount = new TreeMap<>();
+
+        IndexEntry put(IndexEntry entry) {
+            final IndexEntry previous = remove(entry.identifier());
+            entries.put(entry.identifier(), entry);
+            link(byCategory, entry.category(), entry.identifier());
+            link(byCurrency, entry.currency(), entry.identifier());
+            link(byMerchant, entry.merchantProvider(), entry.identifier());
+            link(byDate, entry.expenseDate(), entry.identifier());
+            link(byAmount, entry.amount(), entry.identifier());
+            return previous;
+        }
+
+        IndexEntry remove(URI identifier) {
+            final IndexEntry previous = entries.remove(identifier);
+            if (previous != null) {
+                unlink(byCategory, previous.category(), identifier);
+                unlink(byCurrency, previous.currency(), identifier);
+                unlink(byMerchant, previous.merchantProvider(), identifier);
+                unlink(byDate, previous.expenseDate(), identifier);
+                unlink(byAmount, previous.amount(), identifier);
+            }
+            return previous;
+        }
+
+        /**
+         * Picks the narrowest index for the query; the caller filters the candidates on every criterion.
+         */
+        Collection<URI> candidates(ExpenseQuery query) {
+            Collection<URI> best = null;
+            if (query.category() != null) best = smaller(best, byCategory.getOrDefault(query.category(), Set.of()));
+            if (query.currency() != null) best = smaller(best, byCurrency.getOrDefault(query.currency(), Set.of()));
+            if (query.merchantProvider() != null) best = smaller(best, byMerchant.getOrDefault(query.merchantProvider(), Set.of()));
+            if (best != null) return best;
+            if (query.from() != null || query.to() != null) {
+                return flatten(range(byDate, query.from(), query.to()).values());
+            }
+            if (query.minAmount() != null || query.maxAmount() != null) {
+                return flatten(range(byAmount, query.minAmount(), query.maxAmount()).values());
+            }
+            return entries.keySet();
+        }
+
+        private static Collection<URI> smaller(Collection<URI> current, Collection<URI> candidate) {
+            return current == null || candidate.size() < current.size() ? candidate : current;
+        }
+
+        private static <K extends Comparable<? super K>> NavigableMap<K, Set<URI>> range(NavigableMap<K, Set<URI>> index,
+                                                                                       K from, K to) {
+            if (from != null && to != null) {
+                // An inverted range matches nothing; subMap would throw instead.
+                return from.compareTo(to) > 0 ? Collections.emptyNavigableMap() : index.subMap(from, true, to, true);
+            }
+            if (from != null) return index.tailMap(from, true);
+            return index.headMap(to, true);
+        }
+
+        private static Collection<URI> flatten(Collection<Set<URI>> groups) {
+            final List<URI> identifiers = new ArrayList<>();
+            groups.forEach(identifiers::addAll);
+            return identifiers;
+        }
+
+        private static <K> void link(Map<K, Set<URI>> index, K key, URI identifier) {
+            if (key != null) index.computeIfAbsent(key, k -> new HashSet<>()).add(identifier);
+        }
+
+        private static <K> void unlink(Map<K, Set<URI>> index, K key, URI identifier) {
+            if (key == null) return;
+            final Set<URI> identifiers = index.get(key);
+            if (identifiers != null && identifiers.remove(identifier) && identifiers.isEmpty()) index.remove(key);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Request;
+import com.inrupt.client.Response;
+import com.inrupt.client.solid.PreconditionFailedException;
+import com.inrupt.client.solid.SolidClientException;
+import com.inrupt.client.solid.SolidSyncClient;
+import com.inrupt.rdf.wrapping.commons.RDFFactory;
+import org.apache.commons.rdf.api.BlankNode;
+import org.apache.commons.rdf.api.IRI;
+import org.apache.commons.rdf.api.RDFSyntax;
+import org.apache.commons.rdf.api.Triple;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Writes Expense changes to the Pod as SPARQL Update PATCH requests carrying only the changed triples,
+ * instead of a PUT of the whole graph.
+ * <p>
+ * An update is diffed against the version the client based it on: the version with the ETag the client sent
+ * in If-Match, or else the version in the ExpenseCache, which is the one the client last read through it.
+ * The DELETE DATA / INSERT DATA delta is sent with an If-Match on that ETag, without reading the Pod first.
+ * When the Expense changed in the meantime the Pod answers 412: against the cached version, the Expense is read
+ * again and the same delta re-sent, up to expenses.patch.max-attempts times, while the triples it deletes are
+ * still there; against the client's If-Match, or once the delta no longer applies, the caller gets the
+ * PreconditionFailedException.
+ * When that version is not in the cache, or the delta holds blank nodes, the whole Expense is PUT instead, with
+ * the client's If-Match if any; without one, as with SolidSyncClient.update(), a missing resource is created.
+ * Only triples about the Expense itself are compared and written; other subjects in the document are left alone.
+ * Adding a receipt sends a single INSERT DATA, which commutes with concurrent changes; its If-Match: * only
+ * requires the Expense to exist.
+ */
+@Component
+public class ExpensePatcher {
+
+    private static final String SPARQL_UPDATE = "application/sparql-update";
+
+    private final SolidSyncClient client;
+    private final ExpenseCache expenseCache;
+    private final PodMetrics podMetrics;
+    private final int maxAttempts;
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
+    public ExpensePatcher(SolidSyncClient client, ExpenseCache expenseCache, PodMetrics podMetrics,
+                          @Value("${expenses.patch.max-attempts:3}") int maxAttempts) {
+        this.client = client;
+        this.expenseCache = expenseCache;
+        this.podMetrics = podMetrics;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Makes the Pod's triples about the Expense equal to the given Expense's and returns it.
+     * The ifMatch is the ETag of the version the client changed, or null to use the cached version.
+     * Throws PreconditionFailedException when the Expense in the Pod is no longer that version.
+     */
+    public Expense update(Expense expense, String ifMatch) {
+        final URI identifier = expense.getIdentifier();
+        final ExpenseCache.Versioned base = expenseCache.cached(identifier);
+        try {
+            if (base == null || base.etag() == null || (ifMatch != null && !ifMatch.equals(base.etag()))) {
+                put(expense, ifMatch);
+                return expense;
+            }
+            final IRI subject = RDFFactory.getInstance().createIRI(identifier.toString());
+            final Set<Triple> desired = triplesAbout(expense, subject);
+            final Set<Triple> existing = triplesAbout(base.expense(), subject);
+
+            final Set<Triple> deletes = new HashSet<>(existing);
+            deletes.removeAll(desired);
+            final Set<Triple> inserts = new HashSet<>(desired);
+            inserts.removeAll(existing);
+            if (deletes.isEmpty() && inserts.isEmpty()) {
+                return expense;
+            }
+            if (hasBlankNode(deletes) || hasBlankNode(inserts)) {
+                // DELETE DATA cannot match blank nodes, and INSERT DATA would mint new ones on every update.
+                put(expense, ifMatch);
+                return expense;
+            }
+            patch(identifier, subject, deletes, inserts, base.etag(), ifMatch != null);
+        } finally {
+            // After a 412 too: the cached version is the one that lost the race.
+            expenseCache.invalidate(identifier);
+        }
+        return expense;
+    }
+
+    /**
+     * Sends the delta with an If-Match on the ETag. On a 412, when the precondition was not the client's own,
+     * re-reads the Expense and sends the same delta again against the new version, as long as the triples it
+     * deletes are still there; otherwise the PreconditionFailedException is thrown.
+     */
+    private void patch(URI identifier, IRI subject, Set<Triple> deletes, Set<Triple> inserts, String etag,
+                       boolean clientPrecondition) {
+        final String update = sparqlUpdate(deletes, inserts);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                patch(identifier, update, etag);
+                return;
+            } catch (PreconditionFailedException e) {
+                if (clientPrecondition || attempt >= maxAttempts) throw e;
+                expenseCache.invalidate(identifier);
+                final ExpenseCache.Versioned current = expenseCache.readVersioned(identifier);
+                if (current.etag() == null || !triplesAbout(current.expense(), subject).containsAll(deletes)) throw e;
+                etag = current.etag();
+                printWriter.println(String.format("ExpensePatcher:: %s changed concurrently, retrying (attempt %d)", identifier, attempt + 1));
+            }
+        }
+    }
+
+    /**
+     * Links the receipt to the Expense with one INSERT DATA request, whatever the size of the Expense.
+     * The request carries If-Match: *, so a missing Expense is not created; that fails with a NotFoundException.
+     */
+    public void addReceipt(URI expense, String receipt) {
+        final String triple = "<" + expense + "> " + Expense.SCHEMA_ORG_IMAGE.ntriplesString() + " <" + URI.create(receipt) + "> .";
+        try {
+            patch(expense, "INSERT DATA {\n" + triple + "\n}", "*");
+        } catch (PreconditionFailedException e) {
+            throw SolidClientException.handle("No expense at " + expense, expense, 404, e.getHeaders(), e.getBody());
+        } finally {
+            expenseCache.invalidate(expense);
+        }
+    }
+
+    private static Set<Triple> triplesAbout(Expense expense, IRI subject) {
+        return expense.getGraph().stream(subject, null, null).collect(Collectors.<Triple>toSet());
+    }
+
+    private static boolean hasBlankNode(Set<Triple> triples) {
+        return triples.stream().anyMatch(triple -> triple.getSubject() instanceof BlankNode
+                || triple.getObject() instanceof BlankNode);
+    }
+
+    private void put(Expense expense, String etag) {
+        final URI identifier = expense.getIdentifier();
+        final byte[] turtle = podMetrics.serialization("turtle", "write", () -> {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                expense.serialize(RDFSyntax.TURTLE, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        });
+        final Request.Builder request = Request.newBuilder(identifier)
+                .header("Content-Type", "text/turtle")
+                .PUT(Request.BodyPublishers.ofByteArray(turtle));
+        if (etag != null) request.header("If-Match", etag);
+
+        final Response<byte[]> response = podMetrics.pod("update",
+                () -> client.send(request.build(), Response.BodyHandlers.ofByteArray()));
+        if (response.statusCode() >= 400) {
+            throw SolidClientException.handle("Unable to update resource at " + identifier, identifier,
+                    response.statusCode(), response.headers(), new String(response.body(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private void patch(URI identifier, String update, String etag) {
+        final Request.Builder request = Request.newBuilder(identifier)
+                .header("Content-Type", SPARQL_UPDATE)
+                .PATCH(Request.BodyPublishers.ofString(update));
+        if (etag != null) request.header("If-Match", etag);
+
+        final Response<byte[]> response = podMetrics.pod("patch",
+                () -> client.send(request.build(), Response.BodyHandlers.ofByteArray()));
+        if (response.statusCode() >= 400) {
+            throw SolidClientException.handle("Unable to patch resource at " + identifier, identifier,
+                    response.statusCode(), response.headers(), new String(response.body(), StandardCharsets.UTF_8));
+        }
+    }
+
+    static String sparqlUpdate(Set<Triple> deletes, Set<Triple> inserts) {
+        final StringBuilder update = new StringBuilder();
+        if (!deletes.isEmpty()) {
+            update.append("DELETE DATA {\n");
+            deletes.forEach(triple -> update.append(ntriples(triple)).append('\n'));
+            update.append("}");
+        }
+        if (!inserts.isEmpty()) {
+            if (update.length() > 0) update.append(";\n");
+            update.append("INSERT DATA {\n");
+            inserts.forEach(triple -> update.append(ntriples(triple)).append('\n'));
+            update.append("}");
+        }
+        return update.toString();
+    }
+
+    private static String ntriples(Triple triple) {
+        return triple.getSubject().ntriplesString() + " "
+                + triple.getPredicate().ntriplesString() + " "
+                + triple.getObject().ntriplesString() + " .";
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.gettingstarted;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Criteria for ExpenseIndex.search. Null fields match everything; ranges are inclusive.
+ */
+public record ExpenseQuery(String category, String currency, String merchantProvider,
+                           Instant from, Instant to, BigDecimal minAmount, BigDecimal maxAmount) {
+
+    boolean matches(IndexEntry entry) {
+        if (category != null && !category.equals(entry.category())) return false;
+        if (currency != null && !currency.equals(entry.currency())) return false;
+        if (merchantProvider != null && !merchantProvider.equals(entry.merchantProvider())) return false;
+        if (from != null || to != null) {
+            if (entry.expenseDate() == null) return false;
+            if (from != null && entry.expenseDate().isBefore(from)) return false;
+            if (to != null && entry.expenseDate().isAfter(to)) return false;
+        }
+        if (minAmount != null || maxAmount != null) {
+            if (entry.amount() == null) return false;
+            if (minAmount != null && entry.amount().compareTo(minAmount) < 0) return false;
+            if (maxAmount != null && entry.amount().compareTo(maxAmount) > 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.gettingstarted;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running totals of Expense amounts per category, per currency and per month.
+ * <p>
+ * The rollups listen to the ExpenseIndex. Each change subtracts the previous entry's amount and adds
+ * the new one, so a write costs O(1) and reading the summary costs O(number of groups). Amounts are
+ * never summed across currencies: category and month totals are kept per currency as well.
+ * Rebuilding the index from a container replaces the contributions of that container's Expenses only,
+ * so the totals of Expenses in other containers are kept.
+ */
+@Component
+public class ExpenseRollups implements ExpenseIndex.Listener {
+
+    private final Map<Group, Total> byCategory = new HashMap<>();
+    private final Map<Group, Total> byCurrency = new HashMap<>();
+    private final Map<Group, Total> byMonth = new HashMap<>();
+
+    public ExpenseRollups(ExpenseIndex expenseIndex) {
+        expenseIndex.addListener(this);
+    }
+
+    @Override
+    public synchronized void changed(IndexEntry previous, IndexEntry current) {
+        if (previous != null) apply(previous, -1);
+        if (current != null) apply(current, 1);
+    }
+
+    @Override
+    public synchronized void reloaded(Collection<IndexEntry> entries) {
+        byCategory.clear();
+        byCurrency.clear();
+        byMonth.clear();
+        entries.forEach(entry -> apply(entry, 1));
+    }
+
+    public synchronized ExpenseSummary summary() {
+        return new ExpenseSummary(totals(byCategory), totals(byCurrency), totals(byMonth));
+    }
+
+    private void apply(IndexEntry entry, int sign) {
+        final BigDecimal amount = entry.amount() == null ? BigDecimal.ZERO : entry.amount();
+        add(byCategory, new Group(entry.category(), entry.currency()), amount, sign);
+        add(byCurrency, new Group(entry.currency(), entry.currency()), amount, sign);
+        if (entry.expenseDate() != null) {
+            final String month = YearMonth.from(entry.expenseDate().atOffset(ZoneOffset.UTC)).toString();
+            add(byMonth, new Group(month, entry.currency()), amount, sign);
+        }
+    }
+
+    private static void add(Map<Group, Total> totals, Group group, BigDecimal amount, int sign) {
+        final Total total = totals.computeIfAbsent(group, g -> new Total());
+        total.amount = sign > 0 ? total.amount.add(amount) : total.amount.subtract(amount);
+        total.count += sign;
+        if (total.count <= 0) totals.remove(group);
+    }
+
+    private static List<ExpenseSummary.Total> totals(Map<Group, Total> totals) {
+        final List<ExpenseSummary.Total> result = new ArrayList<>(totals.size());
+        totals.forEach((group, total) -> result.add(
+                new ExpenseSummary.Total(group.name(), group.currency(), total.amount, total.count)));
+        result.sort(Comparator.comparing(ExpenseSummary.Total::group, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(ExpenseSummary.Total::currency, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    private record Group(String name, String currency) {
+    }
+
+    private static final class Total {
+        BigDecimal amount = BigDecimal.ZERO;
+        long count;
+    }
+}
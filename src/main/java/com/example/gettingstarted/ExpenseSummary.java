@@ -0,0 +1,13 @@
+package com.example.gettingstarted;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The response of GET /api/expenses/summary: one Total per category/currency, per currency and per month/currency.
+ */
+public record ExpenseSummary(List<Total> byCategory, List<Total> byCurrency, List<Total> byMonth) {
+
+    public record Total(String group, String currency, BigDecimal amount, long count) {
+    }
+}
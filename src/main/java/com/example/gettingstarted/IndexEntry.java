@@ -0,0 +1,21 @@
+package com.example.gettingstarted;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Instant;
+
+/**
+ * The indexed fields of one Expense, as held by the ExpenseIndex and returned by /api/expenses/search.
+ */
+public record IndexEntry(URI identifier, String category, Instant expenseDate,
+                         String merchantProvider, BigDecimal amount, String currency) {
+
+    static IndexEntry of(Expense expense) {
+        return new IndexEntry(expense.getIdentifier(),
+                expense.getCategory(),
+                expense.getExpenseDate() == null ? null : expense.getExpenseDate().toInstant(),
+                expense.getMerchantProvider(),
+                expense.getAmount(),
+                expense.getCurrency());
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.gettingstarted;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * The journal file and rebuild bookkeeping shared by the ExpenseIndex and the ReceiptIndex.
+ * <p>
+ * Every put and remove on the index's live map is appended as one record, which replay() applies again on
+ * startup; a partial last record, left by a crash mid-append, is ignored. Once the journal holds more than
+ * twice as many records as there are live entries (plus 1000), it is rewritten with one record per live entry
+ * and swapped in atomically.
+ * <p>
+ * While a rebuild reads the Pod, the puts and removes made meanwhile are recorded, so the rebuild can re-apply
+ * them on top of what it read. Rebuilds run one at a time. Apart from rebuild(), the journal is not thread safe:
+ * every other method must be called while holding the index's lock.
+ */
+final class IndexJournal<K, V> {
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    /**
+     * Writes and reads the key and value of one record. The value of a remove record is whatever the index
+     * passed to remove(), possibly null.
+     */
+    interface Codec<K, V> {
+
+        void write(DataOutputStream out, boolean remove, K key, V value) throws IOException;
+
+        Change<K, V> read(DataInputStream in, boolean remove) throws IOException;
+    }
+
+    /**
+     * A put, or a remove, of a key; the value as for the Codec.
+     */
+    record Change<K, V>(K key, V value, boolean removed) {
+    }
+
+    private final Path file;
+    private final String name;
+    private final Codec<K, V> codec;
+    private final Map<K, V> live;
+    private final Lock rebuildLock = new ReentrantLock();
+
+    private DataOutputStream journal;
+    private long records;
+    private List<Change<K, V>> changedDuringRebuild;
+
+    /**
+     * @param name what the index is called in error messages, e.g. "expense index"
+     * @param live the index's map of live entries, written out on compaction
+     */
+    IndexJournal(Path file, String name, Codec<K, V> codec, Map<K, V> live) {
+        this.file = file;
+        this.name = name;
+        this.codec = codec;
+        this.live = live;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    boolean exists() {
+        return Files.exists(file);
+    }
+
+    /**
+     * Applies every complete record in the journal to the index, then opens the journal for appending.
+     */
+    void open(BiConsumer<K, V> put, BiConsumer<K, V> remove) throws IOException {
+        if (exists()) {
+            records = replay(put, remove);
+        }
+        openJournal();
+    }
+
+    void close() throws IOException {
+        journal.close();
+    }
+
+    void put(K key, V value) {
+        append(new Change<>(key, value, false));
+    }
+
+    void remove(K key, V value) {
+        append(new Change<>(key, value, true));
+    }
+
+    /**
+     * Runs the rebuild once no other rebuild is running, and returns its result.
+     */
+    int rebuild(IntSupplier rebuild) {
+        rebuildLock.lock();
+        try {
+            return rebuild.getAsInt();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Starts recording the changes made while a rebuild reads the Pod.
+     */
+    void startRecording() {
+        changedDuringRebuild = new ArrayList<>();
+    }
+
+    /**
+     * Stops recording and returns the changes made since startRecording().
+     */
+    List<Change<K, V>> stopRecording() {
+        final List<Change<K, V>> changes = changedDuringRebuild == null ? List.of() : changedDuringRebuild;
+        changedDuringRebuild = null;
+        return changes;
+    }
+
+    /**
+     * Rewrites the journal with one record per live entry and swaps it in atomically.
+     */
+    void compact() {
+        final Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+                for (Map.Entry<K, V> entry : live.entrySet()) {
+                    out.writeByte(PUT);
+                    codec.write(out, false, entry.getKey(), entry.getValue());
+                }
+            }
+            journal.close();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            records = live.size();
+            openJournal();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compact " + name + " " + file, e);
+        }
+    }
+
+    private void append(Change<K, V> change) {
+        try {
+            journal.writeByte(change.removed() ? REMOVE : PUT);
+            codec.write(journal, change.removed(), change.key(), change.value());
+            journal.flush();
+            records++;
+            if (changedDuringRebuild != null) changedDuringRebuild.add(change);
+            if (records > 2L * live.size() + 1000) compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write " + name + " " + file, e);
+        }
+    }
+
+    private void openJournal() throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        journal = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    private long replay(BiConsumer<K, V> put, BiConsumer<K, V> remove) throws IOException {
+        long replayed = 0;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                final byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException end) {
+                    return replayed;
+                }
+                try {
+                    final Change<K, V> change = codec.read(in, op == REMOVE);
+                    if (change.removed()) remove.accept(change.key(), change.value());
+                    else put.accept(change.key(), change.value());
+                    replayed++;
+                } catch (EOFException truncated) {
+                    // A crash mid-append leaves a partial last record; everything before it is intact.
+                    return replayed;
+                }
+            }
+        }
+    }
+}
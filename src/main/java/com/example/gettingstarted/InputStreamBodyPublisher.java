@@ -0,0 +1,135 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Request;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A request body that streams an InputStream to the Pod in fixed-size chunks, honouring subscriber demand.
+ * <p>
+ * A chunk is only read from the input when the HTTP client has asked for one, so at most a few chunks are in
+ * memory at any time, whatever the size of the body. The declared content length (or -1 when unknown) is
+ * passed on so the transport can send a Content-Length header instead of chunked encoding.
+ * The publisher is single use: the stream can only be read once.
+ */
+public class InputStreamBodyPublisher implements Request.BodyPublisher {
+
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final long contentLength;
+    private final int chunkSize;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public InputStreamBodyPublisher(InputStream input, long contentLength) {
+        this(input, contentLength, DEFAULT_CHUNK_SIZE);
+    }
+
+    InputStreamBodyPublisher(InputStream input, long contentLength, int chunkSize) {
+        this.input = input;
+        this.contentLength = contentLength;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The request body stream has already been consumed"));
+            return;
+        }
+        subscriber.onSubscribe(new StreamSubscription(subscriber));
+    }
+
+    private final class StreamSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean done;
+
+        StreamSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (done) return;
+            if (n <= 0) {
+                finish(new IllegalArgumentException("Demand must be positive, got " + n));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            closeQuietly();
+        }
+
+        /**
+         * Reads and emits chunks while there is demand. Only one thread drains at a time;
+         * a request() made from inside onNext just raises the demand the running loop sees.
+         */
+        private void drain() {
+            do {
+                if (!draining.compareAndSet(false, true)) return;
+                try {
+                    while (!done && demand.get() > 0) {
+                        final byte[] chunk = new byte[chunkSize];
+                        final int read = input.read(chunk);
+                        if (read < 0) {
+                            done = true;
+                            closeQuietly();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        if (read == 0) continue;
+                        demand.decrementAndGet();
+                        subscriber.onNext(ByteBuffer.wrap(chunk, 0, read));
+                    }
+                } catch (IOException e) {
+                    finish(e);
+                    return;
+                } finally {
+                    draining.set(false);
+                }
+            } while (!done && demand.get() > 0);
+        }
+
+        private void finish(Throwable failure) {
+            if (done) return;
+            done = true;
+            closeQuietly();
+            subscriber.onError(failure);
+        }
+
+        private void closeQuietly() {
+            try {
+                input.close();
+            } catch (IOException e) {
+                // The stream is abandoned either way.
+            }
+        }
+    }
+}
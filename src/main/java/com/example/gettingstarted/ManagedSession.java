@@ -0,0 +1,239 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Request;
+import com.inrupt.client.auth.Authenticator;
+import com.inrupt.client.auth.Credential;
+import com.inrupt.client.auth.Session;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A Session that keeps a valid access token ready, so no Pod request waits for the identity provider.
+ * <p>
+ * Each refresh builds a new session from the supplier (an OpenIdSession.ofClientCredentials) and has it fetch
+ * a token. Refreshes run in the background, refreshBefore ahead of the current token's expiry, and failed
+ * refreshes are retried every retryAfter. Until a new token is ready, requests keep using the current one.
+ * Concurrent refreshes, whether scheduled or caused by a 401 from the Pod, share a single token request.
+ * <p>
+ * Publishes expenses.session.token.age and expenses.session.token.remaining gauges (seconds) and an
+ * expenses.session.refresh timer, tagged with the outcome.
+ */
+public class ManagedSession implements Session, AutoCloseable {
+
+    /**
+     * A token fetched less than this long ago is handed out again instead of being refreshed on a 401.
+     */
+    private static final Duration MIN_REFRESH_INTERVAL = Duration.ofSeconds(5);
+
+    private final String id = UUID.randomUUID().toString();
+    private final Supplier<Session> sessions;
+    private final URI issuer;
+    private final Duration refreshBefore;
+    private final Duration retryAfter;
+    private final Clock clock;
+    private final MeterRegistry registry;
+    private final ScheduledExecutorService scheduler;
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
+    private volatile Current current;
+    private CompletableFuture<Current> refreshing;
+
+    public ManagedSession(Supplier<Session> sessions, URI issuer, Duration refreshBefore, Duration retryAfter,
+                          MeterRegistry registry) {
+        this(sessions, issuer, refreshBefore, retryAfter, registry, Clock.systemUTC());
+    }
+
+    ManagedSession(Supplier<Session> sessions, URI issuer, Duration refreshBefore, Duration retryAfter,
+                   MeterRegistry registry, Clock clock) {
+        this.sessions = sessions;
+        this.issuer = issuer;
+        this.refreshBefore = refreshBefore;
+        this.retryAfter = retryAfter;
+        this.registry = registry;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "session-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("expenses.session.token.age", this, session -> session.tokenSeconds(true))
+                .description("Seconds since the current access token was issued")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("expenses.session.token.remaining", this, session -> session.tokenSeconds(false))
+                .description("Seconds until the current access token expires")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Fetches the first token in the background.
+     */
+    public void start() {
+        refresh();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Starts a token refresh unless one is already running, and returns the refresh in progress.
+     */
+    CompletableFuture<Current> refresh() {
+        final CompletableFuture<Current> refresh;
+        synchronized (this) {
+            if (refreshing != null) return refreshing;
+            refresh = refreshing = new CompletableFuture<>();
+        }
+        scheduler.execute(() -> fetchToken(refresh));
+        return refresh;
+    }
+
+    private void fetchToken(CompletableFuture<Current> refresh) {
+        final Timer.Sample sample = Timer.start(registry);
+        String outcome = "failure";
+        try {
+            final Session session = sessions.get();
+            final Credential credential = session.authenticate(null, Request.newBuilder(issuer).GET().build(), Set.of())
+                    .toCompletableFuture().join()
+                    .orElseThrow(() -> new IllegalStateException("No token was issued by " + issuer));
+            final Current next = new Current(session, credential, clock.instant());
+            current = next;
+            outcome = "success";
+            finish(refresh);
+            refresh.complete(next);
+            scheduleAfter(next);
+        } catch (RuntimeException e) {
+            final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            printWriter.println(String.format("ManagedSession:: token refresh failed, retrying in %s: %s", retryAfter, cause.getMessage()));
+            finish(refresh);
+            refresh.completeExceptionally(cause);
+            schedule(retryAfter);
+        } finally {
+            sample.stop(Timer.builder("expenses.session.refresh")
+                    .description("Access token requests to the identity provider")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    private synchronized void finish(CompletableFuture<Current> refresh) {
+        if (refreshing == refresh) refreshing = null;
+    }
+
+    private void scheduleAfter(Current fetched) {
+        final Instant expiration = fetched.credential().getExpiration();
+        if (expiration == null) return;
+        final Duration delay = Duration.between(clock.instant(), expiration.minus(refreshBefore));
+        schedule(delay.compareTo(MIN_REFRESH_INTERVAL) < 0 ? MIN_REFRESH_INTERVAL : delay);
+    }
+
+    private void schedule(Duration delay) {
+        if (scheduler.isShutdown()) return;
+        scheduler.schedule(this::refresh, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The current session, waiting for the first token if none has been fetched yet; null if that fails.
+     */
+    private Session session() {
+        Current fetched = current;
+        if (fetched == null) {
+            try {
+                fetched = refresh().join();
+            } catch (CompletionException e) {
+                return null;
+            }
+        }
+        return fetched.session();
+    }
+
+    private double tokenSeconds(boolean age) {
+        final Current fetched = current;
+        if (fetched == null) return Double.NaN;
+        if (age) return Duration.between(fetched.issuedAt(), clock.instant()).toMillis() / 1000.0;
+        final Instant expiration = fetched.credential().getExpiration();
+        return expiration == null ? Double.NaN : Duration.between(clock.instant(), expiration).toMillis() / 1000.0;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Optional<URI> getPrincipal() {
+        final Session session = session();
+        return session == null ? Optional.empty() : session.getPrincipal();
+    }
+
+    @Override
+    public Set<String> supportedSchemes() {
+        final Session session = session();
+        return session == null ? Set.of() : session.supportedSchemes();
+    }
+
+    @Override
+    public Optional<Credential> getCredential(URI name, URI uri) {
+        final Session session = session();
+        return session == null ? Optional.empty() : session.getCredential(name, uri);
+    }
+
+    @Override
+    public Optional<String> selectThumbprint(Collection<String> algorithms) {
+        final Session session = session();
+        return session == null ? Optional.empty() : session.selectThumbprint(algorithms);
+    }
+
+    @Override
+    public Optional<byte[]> generateProof(String jkt, Request request) {
+        final Session session = session();
+        return session == null ? Optional.empty() : session.generateProof(jkt, request);
+    }
+
+    /**
+     * Starts a background refresh; the current token stays in use until it completes.
+     */
+    @Override
+    public void reset() {
+        refresh();
+    }
+
+    /**
+     * Called by the client when the Pod rejected the request. Hands out a token fetched moments ago as is;
+     * otherwise joins (or starts) the single refresh in flight.
+     */
+    @Override
+    public CompletionStage<Optional<Credential>> authenticate(Authenticator authenticator, Request request,
+                                                             Set<String> algorithms) {
+        final Current fetched = current;
+        if (fetched != null && fetched.issuedAt().plus(MIN_REFRESH_INTERVAL).isAfter(clock.instant())) {
+            return CompletableFuture.completedFuture(Optional.of(fetched.credential()));
+        }
+        return refresh().thenApply(next -> Optional.of(next.credential()));
+    }
+
+    record Current(Session session, Credential credential, Instant issuedAt) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.solid.SolidClient;
+import com.inrupt.client.solid.SolidSyncClient;
+import com.inrupt.client.webid.WebIdProfile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Looks up the Pods (storages) listed in a WebID profile, for both controllers.
+ * <p>
+ * Storages change rarely, so each lookup is kept for expenses.pods.ttl. Concurrent lookups of a WebID
+ * that is not cached share one profile read and parse, whether they come from the blocking or the
+ * non-blocking controller. At most expenses.pods.max-size WebIDs are kept; expired ones are dropped first.
+ */
+@Component
+public class PodDirectory {
+
+    private final SolidSyncClient client;
+    private final SolidClient asyncClient;
+    private final PodMetrics podMetrics;
+    private final Duration timeToLive;
+    private final int maxSize;
+    private final Clock clock = Clock.systemUTC();
+    private final ConcurrentMap<URI, Cached> storages = new ConcurrentHashMap<>();
+    private final SingleFlight<URI, Set<URI>> lookups;
+
+    public PodDirectory(SolidSyncClient client, SolidClient asyncClient, PodMetrics podMetrics,
+                        @Value("${expenses.pods.ttl:PT5M}") Duration timeToLive,
+                        @Value("${expenses.pods.max-size:1000}") int maxSize) {
+        this.client = client;
+        this.asyncClient = asyncClient;
+        this.podMetrics = podMetrics;
+        this.timeToLive = timeToLive;
+        this.maxSize = maxSize;
+        this.lookups = new SingleFlight<>(() -> podMetrics.coalesced("webid"));
+    }
+
+    public Set<URI> getStorages(URI webId) {
+        final Set<URI> cached = cached(webId);
+        if (cached != null) return cached;
+        return lookups.sync(webId, () -> {
+            try (final var profile = podMetrics.pod("readProfile", () -> client.read(webId, WebIdProfile.class))) {
+                return store(webId, profile.getStorages());
+            }
+        });
+    }
+
+    public CompletableFuture<Set<URI>> getStoragesAsync(URI webId) {
+        final Set<URI> cached = cached(webId);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return lookups.async(webId, () -> podMetrics.podAsync("readProfile", () -> asyncClient.read(webId, WebIdProfile.class))
+                .thenApply(profile -> {
+                    try (profile) {
+                        return store(webId, profile.getStorages());
+                    }
+                }));
+    }
+
+    private Set<URI> cached(URI webId) {
+        final Cached cached = storages.get(webId);
+        final boolean hit = cached != null && cached.expiresAt().isAfter(clock.instant());
+        podMetrics.podsLookup(hit);
+        return hit ? cached.storages() : null;
+    }
+
+    private Set<URI> store(URI webId, Set<URI> found) {
+        final Set<URI> copy = Set.copyOf(found);
+        final Instant now = clock.instant();
+        if (storages.size() >= maxSize) {
+            storages.values().removeIf(cached -> !cached.expiresAt().isAfter(now));
+            if (storages.size() >= maxSize) storages.clear();
+        }
+        storages.put(webId, new Cached(copy, now.plus(timeToLive)));
+        return copy;
+    }
+
+    private record Cached(Set<URI> storages, Instant expiresAt) {
+    }
+}
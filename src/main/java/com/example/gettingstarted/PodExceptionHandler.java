@@ -0,0 +1,25 @@
+package com.example.gettingstarted;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.io.PrintWriter;
+
+/**
+ * Answers requests refused by the PodGuard with 429 or 503 and a Retry-After header, instead of null.
+ */
+@RestControllerAdvice
+public class PodExceptionHandler {
+
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
+    @ExceptionHandler(PodOverloadedException.class)
+    public ResponseEntity<String> podOverloaded(PodOverloadedException e) {
+        printWriter.println(String.format("[%s] PodExceptionHandler:: %s", e.getStatus(), e.getMessage()));
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(e.getMessage());
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.gettingstarted;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Limits the requests in flight to each Pod host and stops sending to hosts that keep failing.
+ * <p>
+ * The concurrency limit of a host adapts to its latency: while responses come back as fast as the lowest
+ * latency seen, the limit grows by about its square root; when latency rises above that, the limit shrinks in
+ * proportion (by at most half), and every 5xx or I/O failure cuts it by a tenth. It stays between minLimit and
+ * maxLimit. A request that would exceed the limit is refused at once with 429 instead of queueing.
+ * <p>
+ * A circuit breaker per host opens when at least failureRate of the last window requests failed. While open,
+ * requests are refused with 503 for openFor; then one probe request is let through, which closes the breaker
+ * when it succeeds and opens it again when it fails.
+ * <p>
+ * Per host, the expenses.pod.concurrency.limit, expenses.pod.concurrency.inflight and expenses.pod.breaker.state
+ * (0 closed, 1 half open, 2 open) gauges are published, and refusals are counted in expenses.pod.rejected by reason.
+ */
+public class PodGuard {
+
+    private static final Permit NONE = failed -> { };
+
+    private final Settings settings;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    public PodGuard(Settings settings, MeterRegistry registry) {
+        this.settings = settings;
+        this.registry = registry;
+    }
+
+    public boolean isEnabled() {
+        return settings.enabled();
+    }
+
+    /**
+     * Admits one request to the host, or throws PodOverloadedException. The permit must be released exactly once,
+     * when the response body was closed or the request failed.
+     */
+    public Permit acquire(String host) {
+        if (!settings.enabled()) return NONE;
+        return hosts.computeIfAbsent(host, Host::new).acquire();
+    }
+
+    /**
+     * The current concurrency limit of the host, or 0 when it has not been called yet.
+     */
+    public int limit(String host) {
+        final Host state = hosts.get(host);
+        return state == null ? 0 : state.currentLimit();
+    }
+
+    public interface Permit {
+        /**
+         * @param failed whether the request failed with an I/O error or a 5xx response
+         */
+        void release(boolean failed);
+    }
+
+    private enum BreakerState {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * Limiter and breaker state of one host, guarded by this.
+     */
+    private final class Host {
+
+        private final String name;
+        private final boolean[] outcomes = new boolean[Math.max(1, settings.window())];
+        private final Counter limitRejections;
+        private final Counter breakerRejections;
+        private double limit = settings.initialLimit();
+        private int inFlight;
+        private long minRtt = Long.MAX_VALUE;
+        private long samples;
+        private int outcomeCount;
+        private int outcomeNext;
+        private int failures;
+        private BreakerState state = BreakerState.CLOSED;
+        private long openUntil;
+        private boolean probing;
+
+        Host(String name) {
+            this.name = name;
+            if (registry != null) {
+                Gauge.builder("expenses.pod.concurrency.limit", this, Host::currentLimit).tag("host", name).register(registry);
+                Gauge.builder("expenses.pod.concurrency.inflight", this, Host::currentInFlight).tag("host", name).register(registry);
+                Gauge.builder("expenses.pod.breaker.state", this, Host::currentState).tag("host", name).register(registry);
+                limitRejections = Counter.builder("expenses.pod.rejected").tag("host", name).tag("reason", "limit").register(registry);
+                breakerRejections = Counter.builder("expenses.pod.rejected").tag("host", name).tag("reason", "breaker").register(registry);
+            } else {
+                limitRejections = null;
+                breakerRejections = null;
+            }
+        }
+
+        synchronized Permit acquire() {
+            final long now = System.nanoTime();
+            if (state == BreakerState.OPEN) {
+                if (now - openUntil < 0) {
+                    throw reject(503, Duration.ofNanos(openUntil - now), "circuit breaker open");
+                }
+                state = BreakerState.HALF_OPEN;
+            }
+            if (state == BreakerState.HALF_OPEN) {
+                if (probing) throw reject(503, settings.openFor(), "circuit breaker half open, probe in flight");
+                probing = true;
+            } else if (inFlight >= (int) limit) {
+                throw reject(429, Duration.ofSeconds(1), "concurrency limit " + (int) limit + " reached");
+            }
+            inFlight++;
+            final boolean probe = state == BreakerState.HALF_OPEN;
+            return failed -> release(now, failed, probe);
+        }
+
+        private synchronized void release(long start, boolean failed, boolean probe) {
+            inFlight--;
+            if (probe) {
+                probing = false;
+                if (failed) {
+                    open();
+                } else {
+                    state = BreakerState.CLOSED;
+                    outcomeCount = outcomeNext = failures = 0;
+                }
+            } else if (state == BreakerState.CLOSED) {
+                record(failed);
+            }
+            adapt(System.nanoTime() - start, failed);
+        }
+
+        private void record(boolean failed) {
+            if (outcomeCount == outcomes.length) {
+                if (outcomes[outcomeNext]) failures--;
+            } else {
+                outcomeCount++;
+            }
+            outcomes[outcomeNext] = failed;
+            if (failed) failures++;
+            outcomeNext = (outcomeNext + 1) % outcomes.length;
+            if (outcomeCount == outcomes.length && failures >= settings.failureRate() * outcomeCount) open();
+        }
+
+        private void open() {
+            state = BreakerState.OPEN;
+            openUntil = System.nanoTime() + settings.openFor().toNanos();
+        }
+
+        private void adapt(long rtt, boolean failed) {
+            final double next;
+            if (failed) {
+                next = limit * 0.9;
+            } else {
+                // Re-learn the unloaded latency now and then, in case the host got slower for good.
+                if (++samples % 1000 == 0) minRtt = rtt;
+                minRtt = Math.min(minRtt, Math.max(1, rtt));
+                final double gradient = Math.max(0.5, Math.min(1.0, (double) minRtt / rtt));
+                // Only grow when the limit is actually being used.
+                if (gradient == 1.0 && inFlight < limit / 2) return;
+                next = limit * 0.8 + (limit * gradient + Math.sqrt(limit)) * 0.2;
+            }
+            limit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(), next));
+        }
+
+        private PodOverloadedException reject(int status, Duration retryAfter, String reason) {
+            final Counter counter = status == 503 ? breakerRejections : limitRejections;
+            if (counter != null) counter.increment();
+            return new PodOverloadedException(status, name, retryAfter, "Pod host " + name + ": " + reason);
+        }
+
+        synchronized int currentLimit() {
+            return (int) limit;
+        }
+
+        synchronized int currentInFlight() {
+            return inFlight;
+        }
+
+        synchronized int currentState() {
+            return state.ordinal();
+        }
+    }
+
+    /**
+     * The guard settings, read from the expenses.guard.* properties. With enabled=false every request is admitted.
+     */
+    public record Settings(boolean enabled, int initialLimit, int minLimit, int maxLimit,
+                           double failureRate, int window, Duration openFor) {
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Response;
+import com.inrupt.client.solid.SolidClientException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer timers around Pod calls, Expense (de)serialization and receipt uploads.
+ * <p>
+ * Pod calls are timed as expenses.pod.requests, tagged with the operation (read, create, update, delete, ...)
+ * and the outcome (2xx, 304, 403, 404, 412 or other). Serialization is timed as expenses.serialization,
+ * tagged with format and direction, including Expense JSON request and response bodies (TimedJsonHttpMessageConverter). Receipt uploads are timed as expenses.receipts.uploads and their sizes
+ * counted in expenses.receipts.bytes; uploads skipped because the content was already in the Pod are counted in
+ * expenses.receipts.deduplicated and their sizes in expenses.receipts.bytes.saved. Reads that joined an identical
+ * read already in flight are counted in expenses.reads.coalesced, tagged with the resource type, and WebID profile
+ * lookups in expenses.pods.lookups, tagged with the result (hit or miss). All timers publish percentile histograms for Prometheus.
+ * <p>
+ * With expenses.metrics.enabled=false every method calls straight through: no clock reads, no meter lookups.
+ */
+@Component
+public class PodMetrics {
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+
+    public PodMetrics(MeterRegistry registry, @Value("${expenses.metrics.enabled:true}") boolean enabled) {
+        this.registry = registry;
+        this.enabled = enabled;
+    }
+
+    public <T> T pod(String operation, Supplier<T> call) {
+        if (!enabled) return call.get();
+        final Timer.Sample sample = Timer.start(registry);
+        String outcome = "other";
+        try {
+            final T result = call.get();
+            outcome = result instanceof Response<?> response ? outcome(response.statusCode()) : "2xx";
+            return result;
+        } catch (SolidClientException e) {
+            outcome = outcome(e.getStatusCode());
+            throw e;
+        } finally {
+            sample.stop(podTimer(operation, outcome));
+        }
+    }
+
+    public void pod(String operation, Runnable call) {
+        pod(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public <T> CompletionStage<T> podAsync(String operation, Supplier<CompletionStage<T>> call) {
+        if (!enabled) return call.get();
+        final Timer.Sample sample = Timer.start(registry);
+        return call.get().whenComplete((result, failure) -> {
+            final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            final String outcome;
+            if (cause == null) outcome = "2xx";
+            else if (cause instanceof SolidClientException e) outcome = outcome(e.getStatusCode());
+            else outcome = "other";
+            sample.stop(podTimer(operation, outcome));
+        });
+    }
+
+    public <T> T serialization(String format, String direction, Supplier<T> call) {
+        if (!enabled) return call.get();
+        final Timer.Sample sample = Timer.start(registry);
+        try {
+            return call.get();
+        } finally {
+            sample.stop(Timer.builder("expenses.serialization")
+                    .description("Expense serialization and parsing")
+                    .tag("format", format)
+                    .tag("direction", direction)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    public <T> T receiptUpload(long bytes, Supplier<T> call) {
+        if (!enabled) return call.get();
+        final Timer.Sample sample = Timer.start(registry);
+        boolean stored = false;
+        try {
+            final T result = call.get();
+            stored = result != null;
+            return result;
+        } finally {
+            sample.stop(Timer.builder("expenses.receipts.uploads")
+                    .description("Receipt uploads to the Pod")
+                    .tag("outcome", stored ? "stored" : "failed")
+                    .publishPercentileHistogram()
+                    .register(registry));
+            if (stored && bytes > 0) {
+                Counter.builder("expenses.receipts.bytes")
+                        .description("Bytes of receipts uploaded to the Pod")
+                        .baseUnit("bytes")
+                        .register(registry)
+                        .increment(bytes);
+            }
+        }
+    }
+
+    public void receiptDeduplicated(long bytes) {
+        if (!enabled) return;
+        Counter.builder("expenses.receipts.deduplicated")
+                .description("Receipt uploads skipped because the content was already in the Pod")
+                .register(registry)
+                .increment();
+        if (bytes > 0) {
+            Counter.builder("expenses.receipts.bytes.saved")
+                    .description("Bytes of receipt uploads skipped by deduplication")
+                    .baseUnit("bytes")
+                    .register(registry)
+                    .increment(bytes);
+        }
+    }
+
+    public void coalesced(String resource) {
+        if (!enabled) return;
+        Counter.builder("expenses.reads.coalesced")
+                .description("Reads served by joining an identical read already in flight")
+                .tag("resource", resource)
+                .register(registry)
+                .increment();
+    }
+
+    public void podsLookup(boolean hit) {
+        if (!enabled) return;
+        Counter.builder("expenses.pods.lookups")
+                .description("Pod storage lookups by WebID, served from the cache or read from the profile")
+                .tag("result", hit ? "hit" : "miss")
+                .register(registry)
+                .increment();
+    }
+
+    private Timer podTimer(String operation, String outcome) {
+        return Timer.builder("expenses.pod.requests")
+                .description("Requests to the Solid Pod")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    static String outcome(int status) {
+        if (status >= 200 && status < 300) return "2xx";
+        return switch (status) {
+            case 304, 403, 404, 412 -> Integer.toString(status);
+            default -> "other";
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.gettingstarted;
+
+import java.time.Duration;
+
+/**
+ * Thrown instead of sending a request to a Pod host that is overloaded (429: its concurrency limit is reached)
+ * or failing (503: its circuit breaker is open). Answered to clients with that status and a Retry-After header.
+ * <p>
+ * The Solid clients wrap transport failures in their own exceptions, so catch-all handlers call
+ * rethrowIfOverloaded to let this one through to the PodExceptionHandler.
+ */
+public class PodOverloadedException extends RuntimeException {
+
+    private final int status;
+    private final String host;
+    private final Duration retryAfter;
+
+    public PodOverloadedException(int status, String host, Duration retryAfter, String message) {
+        super(message);
+        this.status = status;
+        this.host = host;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * The PodOverloadedException among the failure and its causes, or null.
+     */
+    public static PodOverloadedException find(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PodOverloadedException overloaded) return overloaded;
+            if (cause.getCause() == cause) break;
+        }
+        return null;
+    }
+
+    public static void rethrowIfOverloaded(Throwable failure) {
+        final PodOverloadedException overloaded = find(failure);
+        if (overloaded != null) throw overloaded;
+    }
+}
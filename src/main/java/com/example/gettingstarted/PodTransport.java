@@ -0,0 +1,176 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Client;
+import com.inrupt.client.ClientProvider;
+import com.inrupt.client.okhttp.OkHttpService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The HTTP transport shared by the Solid clients: one OkHttp client with a bounded, reusable connection pool.
+ * <p>
+ * Connections are kept alive between requests, so bursts reuse warm (TLS) connections instead of opening new
+ * ones. Over TLS, HTTP/2 is negotiated when the Pod supports it, multiplexing all requests to a host over one
+ * connection; over HTTP/1.1 at most maxRequestsPerHost requests (and so connections) are open to each Pod host.
+ * Response bodies are requested gzip-compressed and inflated transparently, unless compression is off.
+ * Pool usage is published as the okhttp.pool.connection.count and okhttp.pool.connection.limit gauges.
+ * Every request first passes the PodGuard, which refuses it when its host is overloaded or failing, and holds
+ * its permit until the response body has been closed.
+ * <p>
+ * This is the only class that knows which HTTP library the Solid clients run on.
+ */
+public class PodTransport implements AutoCloseable {
+
+    private final Settings settings;
+    private final OkHttpClient okHttpClient;
+
+    /**
+     * @param guard    admits requests per Pod host, or null to admit all
+     * @param registry where pool metrics are published, or null
+     */
+    public PodTransport(Settings settings, PodGuard guard, MeterRegistry registry) {
+        this.settings = settings;
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(settings.maxRequests());
+        dispatcher.setMaxRequestsPerHost(settings.maxRequestsPerHost());
+        final ConnectionPool pool = new ConnectionPool(settings.maxIdleConnections(),
+                settings.keepAlive().toMillis(), TimeUnit.MILLISECONDS);
+
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(pool)
+                .connectTimeout(settings.connectTimeout())
+                .readTimeout(settings.readTimeout())
+                .writeTimeout(settings.readTimeout())
+                .retryOnConnectionFailure(true)
+                .protocols(settings.http2() ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1));
+        if (guard != null && guard.isEnabled()) {
+            builder.addInterceptor(chain -> {
+                final PodGuard.Permit permit;
+                try {
+                    permit = guard.acquire(chain.request().url().host() + ":" + chain.request().url().port());
+                } catch (PodOverloadedException e) {
+                    // OkHttp only lets IOExceptions out of interceptors; callers find the cause with PodOverloadedException.find.
+                    throw new IOException(e.getMessage(), e);
+                }
+                final Response response;
+                try {
+                    response = chain.proceed(chain.request());
+                } catch (IOException | RuntimeException e) {
+                    permit.release(true);
+                    throw e;
+                }
+                // Held until the body is closed: a request still streaming its response is still in flight.
+                return response.newBuilder()
+                        .body(new PermitReleasingBody(response.body(), permit, response.code() >= 500))
+                        .build();
+            });
+        }
+        if (!settings.compression()) {
+            // OkHttp only adds Accept-Encoding: gzip when the request has no Accept-Encoding of its own. It adds it
+            // before the network interceptors run, so this has to be an application interceptor.
+            builder.addInterceptor(chain -> chain.request().header("Accept-Encoding") != null
+                    ? chain.proceed(chain.request())
+                    : chain.proceed(chain.request().newBuilder().header("Accept-Encoding", "identity").build()));
+        }
+        this.okHttpClient = builder.build();
+
+        if (registry != null) {
+            new OkHttpConnectionPoolMetrics(pool, "okhttp.pool", List.of(), settings.maxIdleConnections()).bindTo(registry);
+        }
+    }
+
+    /**
+     * A Client for SolidSyncClient and SolidClient builders, backed by this transport,
+     * or the classpath default when the transport is disabled.
+     */
+    public Client client() {
+        if (!settings.enabled()) return ClientProvider.getClient();
+        return ClientProvider.getClientBuilder()
+                .withInstance(OkHttpService.ofOkHttpClient(okHttpClient))
+                .build();
+    }
+
+    @Override
+    public void close() {
+        okHttpClient.dispatcher().executorService().shutdown();
+        okHttpClient.connectionPool().evictAll();
+    }
+
+    /**
+     * A response body that releases the request's PodGuard permit when it is closed, as failed if the response
+     * was a 5xx or reading the body failed.
+     */
+    private static final class PermitReleasingBody extends ResponseBody {
+        private final ResponseBody body;
+        private final BufferedSource source;
+
+        PermitReleasingBody(ResponseBody body, PodGuard.Permit permit, boolean failed) {
+            this.body = body;
+            final AtomicBoolean released = new AtomicBoolean();
+            this.source = Okio.buffer(new ForwardingSource(body.source()) {
+                private boolean readFailed;
+
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    try {
+                        return super.read(sink, byteCount);
+                    } catch (IOException e) {
+                        readFailed = true;
+                        throw e;
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) permit.release(failed || readFailed);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+
+    /**
+     * The transport settings, read from the expenses.http.* properties.
+     * With enabled=false the Solid clients use the classpath default transport and the rest is ignored.
+     */
+    public record Settings(boolean enabled, int maxRequests, int maxRequestsPerHost, int maxIdleConnections,
+                           Duration keepAlive, Duration connectTimeout, Duration readTimeout,
+                           boolean http2, boolean compression) {
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Request;
+import com.inrupt.client.Response;
+import com.inrupt.client.solid.SolidSyncClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * A local index from the SHA-256 of a receipt's content to the Pod resource holding that content.
+ * <p>
+ * Streamed receipts are hashed as they pass through to the Pod, which costs no extra pass over the bytes.
+ * Multipart receipts, which the servlet container has already buffered, are hashed in a separate pass before
+ * the upload, so that a duplicate is never sent to the Pod.
+ * Before the same content is uploaded again, find() looks it up and confirms with a HEAD request that
+ * the resource still exists, so stale entries are dropped rather than linked. Like the ExpenseIndex,
+ * every change is appended to an IndexJournal (expenses.receipts.index-file) that is replayed on startup
+ * and compacted as it grows; when the journal is missing and expenses.receipts.container is set, the
+ * index is rebuilt in the background by hashing the receipts already in that container.
+ */
+@Component
+public class ReceiptIndex {
+
+    private final SolidSyncClient client;
+    private final ExpenseCrawler expenseCrawler;
+    private final PodMetrics podMetrics;
+    private final URI container;
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
+    private final Map<String, URI> locations = new HashMap<>();
+    private final IndexJournal<String, URI> journal;
+
+    public ReceiptIndex(SolidSyncClient client, ExpenseCrawler expenseCrawler, PodMetrics podMetrics,
+                        @Value("${expenses.receipts.index-file:data/receipt-index.log}") String file,
+                        @Value("${expenses.receipts.container:}") String container) {
+        this.client = client;
+        this.expenseCrawler = expenseCrawler;
+        this.podMetrics = podMetrics;
+        this.journal = new IndexJournal<>(Path.of(file), "receipt index", new Codec(), locations);
+        this.container = container.isBlank() ? null : URI.create(container).normalize();
+    }
+
+    @PostConstruct
+    synchronized void load() throws IOException {
+        final boolean existed = journal.exists();
+        journal.open(locations::put, locations::remove);
+        if (existed) {
+            printWriter.println(String.format("ReceiptIndex:: loaded %d receipts from %s", locations.size(), journal.file()));
+        } else if (container != null) {
+            final Thread rebuild = new Thread(() -> rebuild(container), "receipt-index-rebuild");
+            rebuild.setDaemon(true);
+            rebuild.start();
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        journal.close();
+    }
+
+    /**
+     * Returns the Pod resource holding content with this SHA-256, or null when there is none.
+     * The resource is checked with a HEAD request; one that is gone is removed from the index.
+     */
+    public URI find(String sha256) {
+        final URI location;
+        synchronized (this) {
+            location = locations.get(sha256);
+        }
+        if (location == null) return null;
+
+        final Request head = Request.newBuilder(location).method("HEAD", Request.BodyPublishers.noBody()).build();
+        final int status = podMetrics.pod("head",
+                () -> client.send(head, Response.BodyHandlers.discarding())).statusCode();
+        if (status == 404 || status == 410) {
+            remove(sha256, location);
+            return null;
+        }
+        return status < 400 ? location : null;
+    }
+
+    public synchronized void put(String sha256, URI location) {
+        locations.put(sha256, location);
+        journal.put(sha256, location);
+    }
+
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    /**
+     * Replaces the entries for resources in the container with the hashes of the resources currently in it,
+     * and returns how many there are; entries for other containers are kept. Receipts stored or found gone while
+     * the container is being read are re-applied on top. Rebuilds run one at a time; a second caller waits.
+     */
+    public int rebuild(URI source) {
+        return journal.rebuild(() -> rebuildAlone(source));
+    }
+
+    private int rebuildAlone(URI source) {
+        printWriter.println("ReceiptIndex:: rebuilding from " + source);
+        synchronized (this) {
+            journal.startRecording();
+        }
+
+        final Map<String, URI> rebuilt = new HashMap<>();
+        try {
+            for (URI location : expenseCrawler.list(source)) {
+                final Request get = Request.newBuilder(location).GET().build();
+                final Response<InputStream> response = podMetrics.pod("readNonRDF",
+                        () -> client.send(get, Response.BodyHandlers.ofInputStream()));
+                try (InputStream body = response.body()) {
+                    if (response.statusCode() >= 400) {
+                        printWriter.println(String.format("[%s] ReceiptIndex:: skipping %s", response.statusCode(), location));
+                        continue;
+                    }
+                    rebuilt.put(sha256(body), location);
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                journal.stopRecording();
+            }
+            throw new UncheckedIOException("Unable to rebuild receipt index from " + source, e);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                journal.stopRecording();
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            for (IndexJournal.Change<String, URI> change : journal.stopRecording()) {
+                if (!ExpenseIndex.contains(source, change.value())) continue;
+                if (change.removed()) rebuilt.remove(change.key(), change.value());
+                else rebuilt.put(change.key(), change.value());
+            }
+            locations.entrySet().removeIf(entry -> ExpenseIndex.contains(source, entry.getValue())
+                    && !entry.getValue().equals(rebuilt.get(entry.getKey())));
+            locations.putAll(rebuilt);
+            journal.compact();
+            printWriter.println(String.format("ReceiptIndex:: rebuilt %d receipts from %s, %d in total",
+                    rebuilt.size(), source, locations.size()));
+            return rebuilt.size();
+        }
+    }
+
+    private synchronized void remove(String sha256, URI location) {
+        if (locations.remove(sha256, location)) journal.remove(sha256, location);
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Reads the stream to its end and returns the hex SHA-256 of its content.
+     */
+    public static String sha256(InputStream content) throws IOException {
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[InputStreamBodyPublisher.DEFAULT_CHUNK_SIZE];
+        int read;
+        while ((read = content.read(buffer)) >= 0) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Journal records: the hash and the location, for removes too, so only that location's entry is removed.
+     */
+    private static final class Codec implements IndexJournal.Codec<String, URI> {
+
+        @Override
+        public void write(DataOutputStream out, boolean remove, String sha256, URI location) throws IOException {
+            out.writeUTF(sha256);
+            out.writeUTF(location.toString());
+        }
+
+        @Override
+        public IndexJournal.Change<String, URI> read(DataInputStream in, boolean remove) throws IOException {
+            return new IndexJournal.Change<>(in.readUTF(), URI.create(in.readUTF()), remove);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Request;
+import com.inrupt.client.Response;
+import com.inrupt.client.solid.SolidClientException;
+import com.inrupt.client.solid.SolidSyncClient;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Streams a request body straight through to a non-RDF resource in the Pod.
+ * <p>
+ * The body is read in bounded chunks by an InputStreamBodyPublisher only as fast as the Pod accepts it,
+ * so memory use stays constant whatever the size of the file. Like SolidSyncClient.create(), the PUT is sent
+ * with If-None-Match: *, so an existing resource is never overwritten (PreconditionFailedException).
+ * <p>
+ * The body is hashed with SHA-256 on its way through and recorded in the ReceiptIndex, so later uploads of the
+ * same content can link the stored resource instead of sending the bytes again. A SHA-256 the client claims for
+ * a body is only trusted once the body has been hashed: knowing the hash of a receipt is not enough to link it.
+ */
+@Component
+public class ReceiptUploader {
+
+    private final SolidSyncClient client;
+    private final ReceiptIndex receiptIndex;
+    private final PodMetrics podMetrics;
+
+    public ReceiptUploader(SolidSyncClient client, ReceiptIndex receiptIndex, PodMetrics podMetrics) {
+        this.client = client;
+        this.receiptIndex = receiptIndex;
+        this.podMetrics = podMetrics;
+    }
+
+    /**
+     * Uploads the body to the destination and returns the destination.
+     * The contentLength may be -1 when the caller does not know it.
+     */
+    public URI upload(URI destination, String contentType, long contentLength, InputStream body) {
+        return upload(destination, contentType, contentLength, body, null);
+    }
+
+    /**
+     * Returns the resource already holding the body's content, or else uploads the body to the destination.
+     * The claimedSha256 (hex, from the client's Repr-Digest) is only used to look up the index; the body is always
+     * read and hashed, and when it does not match the claim, IllegalArgumentException is thrown and nothing is linked
+     * (an uploaded resource is deleted again). When the claimed content is already in the Pod, the body is read
+     * but not sent to the Pod.
+     */
+    public URI uploadOrLink(URI destination, String contentType, long contentLength, InputStream body, String claimedSha256) {
+        final URI existing = claimedSha256 == null ? null : receiptIndex.find(claimedSha256);
+        if (existing == null) {
+            return upload(destination, contentType, contentLength, body, claimedSha256);
+        }
+        final String actual;
+        try {
+            actual = ReceiptIndex.sha256(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!actual.equals(claimedSha256)) {
+            throw new IllegalArgumentException("The body does not match its digest " + claimedSha256);
+        }
+        podMetrics.receiptDeduplicated(contentLength);
+        return existing;
+    }
+
+    private URI upload(URI destination, String contentType, long contentLength, InputStream body, String expectedSha256) {
+        final MessageDigest digest = ReceiptIndex.newDigest();
+        final Request request = Request.newBuilder(destination)
+                .header("Content-Type", contentType == null ? "application/octet-stream" : contentType)
+                .header("If-None-Match", "*")
+                .PUT(new InputStreamBodyPublisher(new DigestInputStream(body, digest), contentLength))
+                .build();
+
+        final URI stored = podMetrics.receiptUpload(contentLength, () -> {
+            final Response<byte[]> response = podMetrics.pod("createNonRDF",
+                    () -> client.send(request, Response.BodyHandlers.ofByteArray()));
+            if (response.statusCode() >= 400) {
+                throw SolidClientException.handle("Unable to upload to " + destination, destination,
+                        response.statusCode(), response.headers(), new String(response.body(), StandardCharsets.UTF_8));
+            }
+            return destination;
+        });
+        final String sha256 = HexFormat.of().formatHex(digest.digest());
+        if (expectedSha256 != null && !expectedSha256.equals(sha256)) {
+            podMetrics.pod("delete", () -> client.delete(stored));
+            throw new IllegalArgumentException("The body does not match its digest " + expectedSha256);
+        }
+        receiptIndex.put(sha256, stored);
+        return stored;
+    }
+
+    /**
+     * Returns the resource already holding content with this SHA-256 (hex), or null when the content
+     * has to be uploaded. A hit is counted as a deduplicated upload of contentLength bytes.
+     */
+    public URI existing(String sha256, long contentLength) {
+        if (sha256 == null) return null;
+        final URI existing = receiptIndex.find(sha256);
+        if (existing != null) podMetrics.receiptDeduplicated(contentLength);
+        return existing;
+    }
+
+    /**
+     * Extracts the hex SHA-256 from a Repr-Digest or Content-Digest header (RFC 9530), e.g. sha-256=:base64:,
+     * or returns null when the header is absent or carries no SHA-256.
+     */
+    static String sha256FromDigest(String header) {
+        if (header == null) return null;
+        for (String member : header.split(",")) {
+            final String[] pair = member.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("sha-256")) {
+                final String value = pair[1].trim();
+                if (value.length() < 2 || !value.startsWith(":") || !value.endsWith(":")) return null;
+                try {
+                    return HexFormat.of().formatHex(Base64.getDecoder().decode(value.substring(1, value.length() - 1)));
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
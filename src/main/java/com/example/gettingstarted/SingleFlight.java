@@ -0,0 +1,100 @@
+package com.example.gettingstarted;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: while a call is in flight, further callers for that key
+ * wait for it and get its result (or its exception) instead of making their own.
+ * <p>
+ * Only calls that overlap are shared; nothing is kept once a call completes. Every caller gets the same
+ * result object, so results must not be modified by callers.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final Runnable onCoalesced;
+
+    /**
+     * @param onCoalesced run each time a caller joins a call in flight instead of making its own
+     */
+    SingleFlight(Runnable onCoalesced) {
+        this.onCoalesced = onCoalesced;
+    }
+
+    /**
+     * Runs the call on the calling thread, unless a call for the key is in flight, in which case it waits for that one.
+     */
+    V sync(K key, Supplier<V> call) {
+        final CompletableFuture<V> mine = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            joined();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error cause) throw cause;
+                throw e;
+            }
+        }
+        try {
+            final V result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors too, or the callers waiting for this call would wait forever.
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Starts the call, unless a call for the key is in flight, and returns the future shared by all callers for the key.
+     */
+    CompletableFuture<V> async(K key, Supplier<? extends CompletionStage<V>> call) {
+        final CompletableFuture<V> mine = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            joined();
+            return running;
+        }
+        try {
+            call.get().whenComplete((result, failure) -> {
+                inFlight.remove(key, mine);
+                if (failure == null) mine.complete(result);
+                else mine.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure);
+            });
+        } catch (Throwable e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        return mine;
+    }
+
+    /**
+     * Lets the next caller for the key start a new call, e.g. after the resource was written.
+     * Callers already waiting still get the result of the call in flight.
+     */
+    void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    long coalesced() {
+        return coalesced.get();
+    }
+
+    private void joined() {
+        coalesced.incrementAndGet();
+        onCoalesced.run();
+    }
+}
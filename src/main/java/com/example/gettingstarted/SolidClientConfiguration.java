@@ -0,0 +1,112 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.auth.Session;
+import com.inrupt.client.openid.OpenIdSession;
+import com.inrupt.client.solid.SolidClient;
+import com.inrupt.client.solid.SolidSyncClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Shares one authenticated session, and the clients and caches built on it,
+ * between the synchronous and the non-blocking controllers.
+ */
+@Configuration
+public class SolidClientConfiguration {
+
+    /**
+     * Note 1: Authenticated Session
+     * Using the client credentials, create an authenticated session.
+     * The ManagedSession fetches a new token with a fresh OpenIdSession ahead of expiry, in the background.
+     */
+    @Bean(destroyMethod = "close")
+    public Session session(MeterRegistry registry,
+                           @Value("${expenses.session.refresh-before:PT60S}") Duration refreshBefore,
+                           @Value("${expenses.session.retry-after:PT10S}") Duration retryAfter) {
+        final URI issuer = URI.create(System.getenv("MY_SOLID_IDP")).normalize();
+        final ManagedSession session = new ManagedSession(() -> OpenIdSession.ofClientCredentials(
+                issuer,
+                System.getenv("MY_SOLID_CLIENT_ID"),
+                System.getenv("MY_SOLID_CLIENT_SECRET"),
+                System.getenv("MY_AUTH_FLOW")), issuer, refreshBefore, retryAfter, registry);
+        session.start();
+        return session;
+    }
+
+    /**
+     * Note 1a: PodTransport
+     * The pooled HTTP transport both clients send their requests through.
+     */
+    @Bean(destroyMethod = "close")
+    public PodTransport podTransport(PodGuard podGuard, MeterRegistry registry,
+                                     @Value("${expenses.http.enabled:true}") boolean enabled,
+                                     @Value("${expenses.http.max-requests:256}") int maxRequests,
+                                     @Value("${expenses.http.max-requests-per-host:64}") int maxRequestsPerHost,
+                                     @Value("${expenses.http.max-idle-connections:32}") int maxIdleConnections,
+                                     @Value("${expenses.http.keep-alive:PT5M}") Duration keepAlive,
+                                     @Value("${expenses.http.connect-timeout:PT5S}") Duration connectTimeout,
+                                     @Value("${expenses.http.read-timeout:PT30S}") Duration readTimeout,
+                                     @Value("${expenses.http.http2:true}") boolean http2,
+                                     @Value("${expenses.http.compression:true}") boolean compression) {
+        return new PodTransport(new PodTransport.Settings(enabled, maxRequests, maxRequestsPerHost, maxIdleConnections,
+                keepAlive, connectTimeout, readTimeout, http2, compression), podGuard, registry);
+    }
+
+    /**
+     * Note 1b: PodGuard
+     * Adapts the requests in flight to each Pod host to its latency, and stops calling hosts that keep failing.
+     * The limit never exceeds what the transport sends to one host at a time.
+     */
+    @Bean
+    public PodGuard podGuard(MeterRegistry registry,
+                             @Value("${expenses.guard.enabled:true}") boolean enabled,
+                             @Value("${expenses.guard.initial-limit:16}") int initialLimit,
+                             @Value("${expenses.guard.min-limit:2}") int minLimit,
+                             @Value("${expenses.guard.max-limit:64}") int maxLimit,
+                             @Value("${expenses.http.max-requests-per-host:64}") int maxRequestsPerHost,
+                             @Value("${expenses.guard.breaker.failure-rate:0.5}") double failureRate,
+                             @Value("${expenses.guard.breaker.window:20}") int window,
+                             @Value("${expenses.guard.breaker.open-for:PT10S}") Duration openFor) {
+        final int max = Math.min(maxLimit, maxRequestsPerHost);
+        return new PodGuard(new PodGuard.Settings(enabled, Math.min(initialLimit, max), Math.min(minLimit, max), max,
+                failureRate, window, openFor), registry);
+    }
+
+    /**
+     * Note 2: SolidSyncClient
+     * Instantiates a synchronous client for the authenticated session.
+     * The client has methods to perform CRUD operations.
+     */
+    @Bean
+    public SolidSyncClient solidSyncClient(Session session, PodTransport podTransport) {
+        return SolidSyncClient.getClientBuilder().client(podTransport.client()).build().session(session);
+    }
+
+    /**
+     * Note 2c: SolidClient
+     * Instantiates an asynchronous client for the same session.
+     * Its CRUD methods return a CompletionStage instead of blocking the calling thread.
+     */
+    @Bean
+    public SolidClient solidClient(Session session, PodTransport podTransport) {
+        return SolidClient.getClientBuilder().client(podTransport.client()).build().session(session);
+    }
+
+    /**
+     * Note 2a: ExpenseCache
+     * Keeps recently read Expenses in memory and revalidates them against the Pod with conditional requests.
+     */
+    @Bean
+    public ExpenseCache expenseCache(SolidSyncClient client,
+                                     PodMetrics podMetrics,
+                                     @Value("${expenses.cache.max-size:1000}") int cacheMaxSize,
+                                     @Value("${expenses.cache.fresh-for:PT0S}") Duration cacheFreshFor,
+                                     @Value("${expenses.cache.ttl:PT10M}") Duration cacheTimeToLive) {
+        return new ExpenseCache(client, podMetrics, cacheMaxSize, cacheFreshFor, cacheTimeToLive);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.gettingstarted;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+
+/**
+ * The JSON converter of the REST endpoints, with Expense request and response bodies timed as
+ * expenses.serialization (format json, direction read or write), like the NDJSON listing.
+ * <p>
+ * Being a MappingJackson2HttpMessageConverter bean, it replaces Spring Boot's default one.
+ * Bodies of other types are converted as before, untimed.
+ */
+@Component
+public class TimedJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final PodMetrics podMetrics;
+
+    public TimedJsonHttpMessageConverter(ObjectMapper objectMapper, PodMetrics podMetrics) {
+        super(objectMapper);
+        this.podMetrics = podMetrics;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        if (!(type instanceof Class<?> bodyClass && Expense.class.isAssignableFrom(bodyClass))) {
+            return super.read(type, contextClass, inputMessage);
+        }
+        return timed("read", () -> super.read(type, contextClass, inputMessage));
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (!(object instanceof Expense)) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        timed("write", () -> {
+            super.writeInternal(object, type, outputMessage);
+            return null;
+        });
+    }
+
+    private <T> T timed(String direction, Conversion<T> conversion) throws IOException {
+        try {
+            return podMetrics.serialization("json", direction, () -> {
+                try {
+                    return conversion.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface Conversion<T> {
+        T run() throws IOException;
+    }
+}
@@ -0,0 +1,388 @@
+package com.example.gettingstarted;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inrupt.client.solid.SolidClientException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind for Expense updates (expenses.write-behind.enabled).
+ * <p>
+ * An update is acknowledged once it is appended and forced to a local journal (expenses.write-behind.file).
+ * Updates to the same Expense within expenses.write-behind.window of its first pending update are merged:
+ * the latest state replaces the earlier ones and only that is written to the Pod. A background flusher sends
+ * due updates through the ExpensePatcher, at most expenses.write-behind.parallelism at a time and never two for
+ * the same Expense. Failed writes are retried after another window; writes the Pod refuses (4xx) are dropped
+ * and logged. On startup the journal is replayed, so updates acknowledged before a crash are still written.
+ * <p>
+ * Each update is written with an If-Match on the ETag of the version cached when it was first queued (or
+ * If-Match: * when none was), so a flush that lost a race with a direct update or delete gets a 412 and is
+ * dropped instead of overwriting the newer write or re-creating the Expense. After this queue changed the
+ * Expense itself, by a flush or a receipt link, the next update is based on the version read at flush time.
+ * <p>
+ * Until it is flushed, pending() returns the merged pending state, so reads see the update at once.
+ * The ExpenseChangeTracker is told only once an update reached the Pod, so a dropped update never shows up
+ * in the index or the summaries.
+ */
+@Component
+public class WriteBehindQueue {
+
+    private static final byte ENQUEUED = 1;
+    private static final byte FLUSHED = 2;
+    private static final String ANY_VERSION = "*";
+
+    private final boolean enabled;
+    private final Path file;
+    private final Duration window;
+    private final ExpensePatcher expensePatcher;
+    private final ExpenseChangeTracker expenseChanges;
+    private final ExpenseCache expenseCache;
+    private final ObjectMapper objectMapper;
+    private final Clock clock = Clock.systemUTC();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService flushers;
+    private final PrintWriter printWriter = new PrintWriter(System.out, true);
+
+    /**
+     * Pending updates by Expense, in order of first enqueue. Guarded by this.
+     */
+    private final Map<URI, Pending> pending = new LinkedHashMap<>();
+    private final Set<URI> flushing = new HashSet<>();
+    private long sequence;
+    private long journalRecords;
+    private FileChannel channel;
+    private DataOutputStream journal;
+
+    public WriteBehindQueue(ExpensePatcher expensePatcher, ExpenseChangeTracker expenseChanges, ExpenseCache expenseCache,
+                            ObjectMapper objectMapper,
+                            @Value("${expenses.write-behind.enabled:false}") boolean enabled,
+                            @Value("${expenses.write-behind.file:data/write-behind.log}") String file,
+                            @Value("${expenses.write-behind.window:PT2S}") Duration window,
+                            @Value("${expenses.write-behind.parallelism:4}") int parallelism) {
+        this.expensePatcher = expensePatcher;
+        this.expenseChanges = expenseChanges;
+        this.expenseCache = expenseCache;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.file = Path.of(file);
+        this.window = window;
+        this.scheduler = enabled ? Executors.newSingleThreadScheduledExecutor() : null;
+        this.flushers = enabled ? Executors.newFixedThreadPool(parallelism) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    synchronized void load() throws IOException {
+        if (!enabled) return;
+        if (Files.exists(file)) {
+            journalRecords = replay();
+            printWriter.println(String.format("WriteBehindQueue:: replayed %d pending updates from %s", pending.size(), file));
+        }
+        compact();
+        final long tick = Math.max(50, window.toMillis() / 4);
+        scheduler.scheduleWithFixedDelay(this::flushDue, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the flusher and writes whatever is still pending, for up to one window per pending update.
+     * Anything not written stays in the journal for the next start.
+     */
+    @PreDestroy
+    void close() throws IOException, InterruptedException {
+        if (!enabled) return;
+        scheduler.shutdownNow();
+        synchronized (this) {
+            pending.values().forEach(update -> update.dueAt = Instant.MIN);
+        }
+        flushDue();
+        flushers.shutdown();
+        flushers.awaitTermination(Math.max(1, window.toSeconds()) * Math.max(1, pendingCount()), TimeUnit.SECONDS);
+        synchronized (this) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Durably queues the Expense as the new state of its resource and returns the merged pending state.
+     */
+    public Expense enqueue(Expense expense) throws IOException {
+        final byte[] json = objectMapper.writeValueAsBytes(expense);
+        final ExpenseCache.Versioned cached = expenseCache.cached(expense.getIdentifier());
+        final String etag = cached != null && cached.etag() != null ? cached.etag() : ANY_VERSION;
+        synchronized (this) {
+            final Pending previous = pending.get(expense.getIdentifier());
+            queue(expense.getIdentifier(), json, previous != null ? previous.etag : etag);
+        }
+        return objectMapper.readValue(json, Expense.class);
+    }
+
+    /**
+     * Adds the receipt link to the pending update of the Expense, if any, so its flush does not remove the link.
+     * Call before linking the receipt in the Pod; the update is then based on the version read at flush time.
+     */
+    public void addReceipt(URI identifier, String receipt) throws IOException {
+        if (!enabled) return;
+        synchronized (this) {
+            final Pending update = pending.get(identifier);
+            if (update == null) return;
+            final Expense expense = objectMapper.readValue(update.json, Expense.class);
+            expense.addReceipt(receipt);
+            queue(identifier, objectMapper.writeValueAsBytes(expense), null);
+        }
+    }
+
+    /**
+     * Journals the json as the pending state of the Expense, keeping the due time of an update already pending.
+     * Must be called while holding the lock.
+     */
+    private void queue(URI identifier, byte[] json, String etag) {
+        final long seq = ++sequence;
+        final Pending previous = pending.get(identifier);
+        // Pending before the append, so a compaction triggered by the append keeps this update.
+        pending.put(identifier, new Pending(seq, json, etag,
+                previous != null ? previous.dueAt : clock.instant().plus(window)));
+        try {
+            append(ENQUEUED, seq, identifier, etag, json);
+        } catch (UncheckedIOException e) {
+            if (previous != null) pending.put(identifier, previous);
+            else pending.remove(identifier);
+            throw e;
+        }
+    }
+
+    /**
+     * The pending state of the Expense, or null when nothing is waiting to be written. Each call returns a new copy.
+     */
+    public Expense pending(URI identifier) {
+        final byte[] json;
+        synchronized (this) {
+            final Pending update = enabled ? pending.get(identifier) : null;
+            if (update == null) return null;
+            json = update.json;
+        }
+        try {
+            return objectMapper.readValue(json, Expense.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drops any pending update, e.g. because the Expense is being deleted.
+     */
+    public synchronized void discard(URI identifier) {
+        if (!enabled) return;
+        final Pending update = pending.remove(identifier);
+        if (update != null) append(FLUSHED, update.seq, identifier, null, null);
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    private void flushDue() {
+        final List<URI> due = new ArrayList<>();
+        synchronized (this) {
+            final Instant now = clock.instant();
+            pending.forEach((identifier, update) -> {
+                if (!update.dueAt.isAfter(now) && !flushing.contains(identifier)) due.add(identifier);
+            });
+            flushing.addAll(due);
+        }
+        for (URI identifier : due) {
+            flushers.execute(() -> flush(identifier));
+        }
+    }
+
+    private void flush(URI identifier) {
+        final Pending update;
+        final String queuedEtag;
+        synchronized (this) {
+            update = pending.get(identifier);
+            queuedEtag = update == null ? null : update.etag;
+        }
+        try {
+            if (update == null) return;
+            final Expense expense = objectMapper.readValue(update.json, Expense.class);
+            // Based on the version this queue last wrote, read now; a 404 drops the update like any other 4xx.
+            final String etag = queuedEtag != null ? queuedEtag : expenseCache.readVersioned(identifier).etag();
+            expensePatcher.update(expense, etag != null ? etag : ANY_VERSION);
+            expenseChanges.saved(expense);
+            finish(identifier, update);
+        } catch (SolidClientException e) {
+            // A 412 means the Expense was updated or deleted directly since this update was queued: that write wins.
+            // A PodGuard refusal (429/503) may arrive wrapped in a SolidClientException; it is never dropped.
+            if (PodOverloadedException.find(e) == null && e.getStatusCode() >= 400 && e.getStatusCode() < 500) {
+                printWriter.println(String.format("[%s] WriteBehindQueue:: dropping update of %s: %s", e.getStatusCode(), identifier, e.getMessage()));
+                finish(identifier, update);
+            } else {
+                retry(identifier, e);
+            }
+        } catch (Exception e) {
+            retry(identifier, e);
+        } finally {
+            synchronized (this) {
+                flushing.remove(identifier);
+            }
+        }
+    }
+
+    /**
+     * Removes the update unless a newer one was queued while it was being written; that one stays pending.
+     */
+    private synchronized void finish(URI identifier, Pending written) {
+        append(FLUSHED, written.seq, identifier, null, null);
+        final Pending current = pending.get(identifier);
+        if (current == written) {
+            pending.remove(identifier);
+        } else if (current != null) {
+            // Queued against the version just replaced; the next flush reads the version this one wrote.
+            current.etag = null;
+            current.dueAt = clock.instant().plus(window);
+        }
+    }
+
+    private synchronized void retry(URI identifier, Exception failure) {
+        printWriter.println(String.format("WriteBehindQueue:: update of %s failed, retrying in %s: %s", identifier, window, failure.getMessage()));
+        final Pending current = pending.get(identifier);
+        if (current != null) current.dueAt = clock.instant().plus(window);
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void append(byte op, long seq, URI identifier, String etag, byte[] json) {
+        try {
+            write(journal, op, seq, identifier, etag, json);
+            journal.flush();
+            channel.force(false);
+            journalRecords++;
+            if (journalRecords > 2L * pending.size() + 1000) compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write write-behind journal " + file, e);
+        }
+    }
+
+    /**
+     * Rewrites the journal with one record per pending update and swaps it in atomically.
+     * Must be called while holding the lock.
+     */
+    private void compact() throws IOException {
+        final Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (var compactedChannel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(compactedChannel)))) {
+            for (Map.Entry<URI, Pending> entry : pending.entrySet()) {
+                write(out, ENQUEUED, entry.getValue().seq, entry.getKey(), entry.getValue().etag, entry.getValue().json);
+            }
+            out.flush();
+            compactedChannel.force(true);
+        }
+        if (journal != null) journal.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalRecords = pending.size();
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journal = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    private static void write(DataOutputStream out, byte op, long seq, URI identifier, String etag, byte[] json)
+            throws IOException {
+        out.writeByte(op);
+        out.writeLong(seq);
+        out.writeUTF(identifier.toString());
+        if (op == ENQUEUED) {
+            out.writeUTF(etag == null ? "" : etag);
+            out.writeInt(json.length);
+            out.write(json);
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private long replay() throws IOException {
+        long records = 0;
+        final Instant dueAt = clock.instant();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                final byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException end) {
+                    return records;
+                }
+                try {
+                    final long seq = in.readLong();
+                    final URI identifier = URI.create(in.readUTF());
+                    sequence = Math.max(sequence, seq);
+                    if (op == ENQUEUED) {
+                        final String etag = in.readUTF();
+                        final byte[] json = new byte[in.readInt()];
+                        in.readFully(json);
+                        pending.put(identifier, new Pending(seq, json, etag.isEmpty() ? null : etag, dueAt));
+                    } else {
+                        final Pending update = pending.get(identifier);
+                        if (update != null && update.seq <= seq) pending.remove(identifier);
+                    }
+                    records++;
+                } catch (EOFException truncated) {
+                    // A crash mid-append leaves a partial last record, which was never acknowledged.
+                    return records;
+                }
+            }
+        }
+    }
+
+    /**
+     * The latest queued state of one Expense. etag is the If-Match it is written with, or null to use the
+     * version in the Pod at flush time; dueAt is when it is written. Both are guarded by the queue lock.
+     */
+    private static final class Pending {
+        final long seq;
+        final byte[] json;
+        String etag;
+        Instant dueAt;
+
+        Pending(long seq, byte[] json, String etag, Instant dueAt) {
+            this.seq = seq;
+            this.json = json;
+            this.etag = etag;
+            this.dueAt = dueAt;
+        }
+    }
+}
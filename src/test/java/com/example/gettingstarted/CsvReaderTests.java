@@ -0,0 +1,55 @@
+package com.example.gettingstarted;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvReaderTests {
+
+	@Test
+	void readsPlainRecords() throws IOException {
+		final CsvReader reader = new CsvReader(new StringReader("a,b,c\r\n1,2,3\n"));
+		assertEquals(List.of("a", "b", "c"), reader.next());
+		assertEquals(List.of("1", "2", "3"), reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void keepsEmptyFields() throws IOException {
+		final CsvReader reader = new CsvReader(new StringReader(",b,\n\"\"\n"));
+		assertEquals(List.of("", "b", ""), reader.next());
+		assertEquals(List.of(""), reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void unquotesQuotedFields() throws IOException {
+		final CsvReader reader = new CsvReader(new StringReader("\"a,b\",\"say \"\"hi\"\"\",\"two\r\nlines\"\nlast"));
+		assertEquals(List.of("a,b", "say \"hi\"", "two\r\nlines"), reader.next());
+		assertEquals(List.of("last"), reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void skipsBlankLines() throws IOException {
+		final CsvReader reader = new CsvReader(new StringReader("\n\r\na\n\n\nb\n\n"));
+		assertEquals(List.of("a"), reader.next());
+		assertEquals(List.of("b"), reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void rejectsUnterminatedQuote() throws IOException {
+		final CsvReader reader = new CsvReader(new StringReader("a\n\"open,b\n"));
+		assertEquals(List.of("a"), reader.next());
+		assertThrows(CsvReader.MalformedCsvException.class, reader::next);
+		assertNull(reader.next());
+	}
+
+}
@@ -0,0 +1,204 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Headers;
+import com.inrupt.client.Request;
+import com.inrupt.client.Response;
+import com.inrupt.client.solid.SolidClientException;
+import com.inrupt.client.solid.SolidSyncClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExpenseCacheTests {
+
+	private static final URI EXPENSE = URI.create("https://pod.example/expenses/1");
+	private static final String TURTLE = "<https://pod.example/expenses/1> <https://schema.org/description> \"Lunch\" .";
+	private static final Duration FRESH_FOR = Duration.ofSeconds(10);
+	private static final Duration TIME_TO_LIVE = Duration.ofMinutes(5);
+
+	private final SolidSyncClient client = mock(SolidSyncClient.class);
+	private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+	private final ExpenseCache cache = new ExpenseCache(client, new PodMetrics(new SimpleMeterRegistry(), true), 2,
+			FRESH_FOR, TIME_TO_LIVE, clock);
+
+	@Test
+	void servesFreshEntriesFromMemory() {
+		respond(response(200, "\"v1\"", TURTLE));
+
+		assertEquals("Lunch", cache.read(EXPENSE).getDescription());
+		clock.advance(FRESH_FOR.minusSeconds(1));
+		final ExpenseCache.Versioned cached = cache.readVersioned(EXPENSE);
+
+		assertEquals("Lunch", cached.expense().getDescription());
+		assertEquals("\"v1\"", cached.etag());
+		assertEquals(new ExpenseCache.Stats(1, 2, 1, 1, 0, 0), cache.getStats());
+		verify(client, times(1)).send(any(), any());
+	}
+
+	@Test
+	void revalidatesStaleEntriesWithTheirETag() {
+		respond(response(200, "\"v1\"", TURTLE), response(304, null, ""));
+
+		cache.read(EXPENSE);
+		clock.advance(FRESH_FOR);
+		final ExpenseCache.Versioned revalidated = cache.readVersioned(EXPENSE);
+
+		assertEquals("Lunch", revalidated.expense().getDescription());
+		assertEquals("\"v1\"", revalidated.etag());
+		assertEquals(new ExpenseCache.Stats(1, 2, 0, 1, 1, 0), cache.getStats());
+		final ArgumentCaptor<Request> requests = ArgumentCaptor.forClass(Request.class);
+		verify(client, times(2)).send(requests.capture(), any());
+		assertEquals(Optional.empty(), requests.getAllValues().get(0).headers().firstValue("If-None-Match"));
+		assertEquals(Optional.of("\"v1\""), requests.getAllValues().get(1).headers().firstValue("If-None-Match"));
+
+		// The revalidated entry is fresh again.
+		clock.advance(FRESH_FOR.minusSeconds(1));
+		cache.read(EXPENSE);
+		verify(client, times(2)).send(any(), any());
+	}
+
+	@Test
+	void dropsEntriesOlderThanTheTimeToLive() {
+		respond(response(200, "\"v1\"", TURTLE), response(304, null, ""), response(200, "\"v2\"", TURTLE));
+
+		cache.read(EXPENSE);
+		clock.advance(FRESH_FOR);
+		cache.read(EXPENSE);
+		clock.advance(TIME_TO_LIVE);
+
+		assertNull(cache.cached(EXPENSE));
+		assertEquals("\"v2\"", cache.readVersioned(EXPENSE).etag());
+		assertEquals(2, cache.getStats().misses());
+	}
+
+	@Test
+	void invalidateDropsTheEntry() {
+		respond(response(200, "\"v1\"", TURTLE), response(200, "\"v2\"", TURTLE));
+
+		cache.read(EXPENSE);
+		cache.invalidate(EXPENSE);
+
+		assertNull(cache.cached(EXPENSE));
+		assertEquals("\"v2\"", cache.readVersioned(EXPENSE).etag());
+		verify(client, times(2)).send(any(), any());
+	}
+
+	@Test
+	void failedReadsDropTheEntry() {
+		respond(response(200, "\"v1\"", TURTLE), response(404, null, ""));
+
+		cache.read(EXPENSE);
+		clock.advance(FRESH_FOR);
+
+		assertThrows(SolidClientException.class, () -> cache.read(EXPENSE));
+		assertNull(cache.cached(EXPENSE));
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedEntry() {
+		final URI second = URI.create("https://pod.example/expenses/2");
+		final URI third = URI.create("https://pod.example/expenses/3");
+		respond(response(200, "\"v1\"", TURTLE));
+
+		cache.read(EXPENSE);
+		cache.read(second);
+		cache.read(EXPENSE);
+		cache.read(third);
+
+		assertEquals(2, cache.getStats().size());
+		assertNull(cache.cached(second));
+		assertEquals("\"v1\"", cache.cached(EXPENSE).etag());
+	}
+
+	@Test
+	void everyReadGetsItsOwnCopy() {
+		respond(response(200, "\"v1\"", TURTLE));
+
+		cache.read(EXPENSE).setDescription("Dinner");
+
+		assertEquals("Lunch", cache.read(EXPENSE).getDescription());
+	}
+
+	@Test
+	void concurrentMissesShareOneRequest() throws Exception {
+		final CountDownLatch sent = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		respondWhenReleased(sent, release);
+
+		final CompletableFuture<Expense> first = CompletableFuture.supplyAsync(() -> cache.read(EXPENSE));
+		assertTrue(sent.await(5, TimeUnit.SECONDS));
+		final CompletableFuture<Expense> second = CompletableFuture.supplyAsync(() -> cache.read(EXPENSE));
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (cache.getStats().coalesced() == 0 && System.nanoTime() < deadline) Thread.sleep(1);
+		release.countDown();
+
+		assertEquals("Lunch", first.get(5, TimeUnit.SECONDS).getDescription());
+		assertEquals("Lunch", second.get(5, TimeUnit.SECONDS).getDescription());
+		assertEquals(1, cache.getStats().coalesced());
+		verify(client, times(1)).send(any(), any());
+	}
+
+	@Test
+	void loadsInvalidatedMidFlightAreNotStored() throws Exception {
+		final CountDownLatch sent = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		respondWhenReleased(sent, release);
+
+		final CompletableFuture<Expense> read = CompletableFuture.supplyAsync(() -> cache.read(EXPENSE));
+		assertTrue(sent.await(5, TimeUnit.SECONDS));
+		cache.invalidate(EXPENSE);
+		release.countDown();
+
+		// The reader still gets what it read, but it may predate the write, so it is not cached.
+		assertEquals("Lunch", read.get(5, TimeUnit.SECONDS).getDescription());
+		assertNull(cache.cached(EXPENSE));
+	}
+
+	private void respondWhenReleased(CountDownLatch sent, CountDownLatch release) {
+		final Response<byte[]> response = response(200, "\"v1\"", TURTLE);
+		doAnswer(invocation -> {
+			sent.countDown();
+			assertTrue(release.await(5, TimeUnit.SECONDS));
+			return response;
+		}).when(client).send(any(), any());
+	}
+
+	private void respond(Response<?> first, Response<?>... more) {
+		doReturn(first, (Object[]) more).when(client).send(any(), any());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Response<byte[]> response(int status, String etag, String turtle) {
+		final Headers headers = mock(Headers.class);
+		when(headers.firstValue("ETag")).thenReturn(Optional.ofNullable(etag));
+		when(headers.allValues(any())).thenReturn(List.of());
+		final Response<byte[]> response = mock(Response.class);
+		when(response.statusCode()).thenReturn(status);
+		when(response.headers()).thenReturn(headers);
+		when(response.body()).thenReturn(turtle.getBytes(StandardCharsets.UTF_8));
+		return response;
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.solid.SolidSyncClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExpenseImporterTests {
+
+	private static final URI CONTAINER = URI.create("https://pod.example/expenses/");
+	private static final String CSV = "merchantProvider,expenseDate,description,amount,currency,category\n"
+			+ "Shop,,Lunch,10.00,EUR,Food\n"
+			+ "Shop,2024-01-02,Dinner,ten,EUR,Food\n"
+			+ "Shop,2024-01-03,\"Breakfast,1.00,EUR,Food\n";
+
+	private final SolidSyncClient client = mock(SolidSyncClient.class);
+	private final List<ExpenseImporter> importers = new ArrayList<>();
+
+	@TempDir
+	Path directory;
+
+	@AfterEach
+	void shutdown() {
+		importers.forEach(ExpenseImporter::shutdown);
+	}
+
+	@Test
+	void importsDatelessRowsAndFailsOnlyTheBadOnes() throws IOException {
+		final List<Expense> created = new ArrayList<>();
+		when(client.create(any())).thenAnswer(invocation -> {
+			final Expense expense = invocation.getArgument(0);
+			synchronized (created) {
+				created.add(expense);
+			}
+			return expense;
+		});
+
+		final ExpenseImporter.ImportReport report = importer().run("first", ExpenseImporter.Format.CSV, CONTAINER, input());
+
+		assertEquals(3, report.rowsRead());
+		assertEquals(1, report.created());
+		assertEquals(2, report.failed());
+		assertEquals(3, report.checkpoint());
+		assertEquals(1, created.size());
+		assertNull(created.get(0).getExpenseDate());
+		final List<String> errors = Files.readAllLines(directory.resolve("first.errors.csv"));
+		assertEquals(2, errors.size());
+		assertTrue(errors.get(0).startsWith("2,") && errors.get(0).contains("Invalid row: "), errors.get(0));
+		assertTrue(errors.get(1).startsWith("3,") && errors.get(1).contains("Unreadable row: "), errors.get(1));
+	}
+
+	@Test
+	void listsFailedRowsOnceWhenResumed() throws IOException {
+		when(client.create(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		importer().run("resumed", ExpenseImporter.Format.CSV, CONTAINER, input());
+		// As after a crash before the checkpoint was saved.
+		Files.writeString(directory.resolve("resumed.checkpoint"), "0");
+
+		final ExpenseImporter.ImportReport report = importer().run("resumed", ExpenseImporter.Format.CSV, CONTAINER, input());
+
+		assertEquals(2, report.failed());
+		assertEquals(2, Files.readAllLines(directory.resolve("resumed.errors.csv")).size());
+		assertEquals(1, Files.readAllLines(directory.resolve("resumed.failed.jsonl")).size());
+	}
+
+	private ExpenseImporter importer() {
+		final ExpenseImporter importer = new ExpenseImporter(client, mock(ExpenseChangeTracker.class),
+				new PodMetrics(new SimpleMeterRegistry(), true), Jackson2ObjectMapperBuilder.json().build(),
+				directory.toString(), 2, 1);
+		importers.add(importer);
+		return importer;
+	}
+
+	private static ByteArrayInputStream input() {
+		return new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.example.gettingstarted;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseIndexTests {
+
+	private static final ExpenseQuery ALL = new ExpenseQuery(null, null, null, null, null, null, null);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replaysTheJournalOnLoad() throws IOException {
+		final Path file = directory.resolve("expense-index.log");
+		final ExpenseIndex index = open(file);
+		index.put(entry(1, "Travel", "10.00"));
+		index.put(entry(2, "Food", "20.00"));
+		index.put(entry(3, "Food", "30.00"));
+		index.put(entry(2, "Travel", "25.00"));
+		index.remove(identifier(3));
+		index.close();
+
+		final ExpenseIndex reloaded = open(file);
+		assertEquals(List.of(entry(1, "Travel", "10.00"), entry(2, "Travel", "25.00")), reloaded.search(ALL, 10));
+		assertEquals(2, reloaded.search(new ExpenseQuery("Travel", null, null, null, null, null, null), 10).size());
+		assertEquals(0, reloaded.search(new ExpenseQuery("Food", null, null, null, null, null, null), 10).size());
+		reloaded.close();
+	}
+
+	@Test
+	void ignoresAPartialLastRecord() throws IOException {
+		final Path file = directory.resolve("expense-index.log");
+		final ExpenseIndex index = open(file);
+		index.put(entry(1, "Travel", "10.00"));
+		index.put(entry(2, "Food", "20.00"));
+		index.close();
+		// A crash mid-append: the op byte of a put and the start of its key.
+		Files.write(file, new byte[] {1, 0}, StandardOpenOption.APPEND);
+
+		final ExpenseIndex reloaded = open(file);
+		assertEquals(List.of(entry(1, "Travel", "10.00"), entry(2, "Food", "20.00")), reloaded.search(ALL, 10));
+		reloaded.put(entry(3, "Food", "30.00"));
+		reloaded.close();
+	}
+
+	@Test
+	void compactsTheJournal() throws IOException {
+		final Path file = directory.resolve("expense-index.log");
+		final ExpenseIndex index = open(file);
+		index.put(entry(0, "Food", "0"));
+		final long oneRecord = Files.size(file);
+		for (int i = 1; i <= 5000; i++) {
+			index.put(entry(i % 10, "Food", Integer.toString(i)));
+		}
+		index.remove(identifier(0));
+		index.close();
+
+		// Without compaction the journal would hold 5002 records; it is rewritten once it passes 2 * 10 + 1000.
+		assertTrue(Files.size(file) < 1100 * (oneRecord + 8), "journal size " + Files.size(file));
+		final ExpenseIndex reloaded = open(file);
+		assertEquals(9, reloaded.size());
+		assertEquals(new BigDecimal("4999"), reloaded.search(ALL, 10).stream()
+				.filter(entry -> entry.identifier().equals(identifier(9)))
+				.findFirst().orElseThrow().amount());
+		reloaded.close();
+	}
+
+	@Test
+	void invertedRangesMatchNothing() throws IOException {
+		final ExpenseIndex index = open(directory.resolve("expense-index.log"));
+		index.put(entry(1, "Travel", "10.00"));
+		index.put(entry(2, "Food", "20.00"));
+
+		final Instant from = Instant.parse("2024-01-02T00:00:00Z");
+		assertEquals(List.of(), index.search(new ExpenseQuery(null, null, null, from, from.minusSeconds(1), null, null), 10));
+		assertEquals(List.of(), index.search(new ExpenseQuery(null, null, null, null, null,
+				new BigDecimal("20.00"), new BigDecimal("10.00")), 10));
+		assertEquals(List.of(entry(2, "Food", "20.00")), index.search(new ExpenseQuery(null, null, null, null, null,
+				new BigDecimal("15.00"), new BigDecimal("20.00")), 10));
+		index.close();
+	}
+
+	private static ExpenseIndex open(Path file) throws IOException {
+		final ExpenseIndex index = new ExpenseIndex(null, file.toString(), "");
+		index.load();
+		return index;
+	}
+
+	private static URI identifier(int number) {
+		return URI.create("https://pod.example/expenses/" + number);
+	}
+
+	private static IndexEntry entry(int number, String category, String amount) {
+		return new IndexEntry(identifier(number), category, Instant.parse("2024-01-01T00:00:00Z").plusSeconds(number),
+				"Merchant", new BigDecimal(amount), "EUR");
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Headers;
+import com.inrupt.client.Request;
+import com.inrupt.client.Response;
+import com.inrupt.client.solid.NotFoundException;
+import com.inrupt.client.solid.PreconditionFailedException;
+import com.inrupt.client.solid.SolidSyncClient;
+import com.inrupt.rdf.wrapping.commons.RDFFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.rdf.api.RDF;
+import org.apache.commons.rdf.api.Triple;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExpensePatcherTests {
+
+	private static final RDF rdf = RDFFactory.getInstance();
+	private static final URI EXPENSE = URI.create("https://pod.example/expenses/1");
+
+	private final SolidSyncClient client = mock(SolidSyncClient.class);
+	private final ExpenseCache expenseCache = mock(ExpenseCache.class);
+	private final ExpensePatcher patcher = new ExpensePatcher(client, expenseCache,
+			new PodMetrics(new SimpleMeterRegistry(), true), 3);
+
+	private final Triple oldCategory = triple("https://schema.org/category", "https://pod.example/categories/food");
+	private final Triple newCategory = triple("https://schema.org/category", "https://pod.example/categories/travel");
+	private final Triple image = triple("https://schema.org/image", "https://pod.example/receipts/1.png");
+
+	@Test
+	void deletesAndInsertsInOneUpdate() {
+		assertEquals("DELETE DATA {\n"
+				+ "<https://pod.example/expenses/1> <https://schema.org/category> <https://pod.example/categories/food> .\n"
+				+ "};\n"
+				+ "INSERT DATA {\n"
+				+ "<https://pod.example/expenses/1> <https://schema.org/category> <https://pod.example/categories/travel> .\n"
+				+ "<https://pod.example/expenses/1> <https://schema.org/image> <https://pod.example/receipts/1.png> .\n"
+				+ "}", ExpensePatcher.sparqlUpdate(Set.of(oldCategory), set(newCategory, image)));
+	}
+
+	@Test
+	void leavesOutAnEmptyPart() {
+		assertEquals("DELETE DATA {\n"
+				+ "<https://pod.example/expenses/1> <https://schema.org/image> <https://pod.example/receipts/1.png> .\n"
+				+ "}", ExpensePatcher.sparqlUpdate(Set.of(image), Set.of()));
+		assertEquals("INSERT DATA {\n"
+				+ "<https://pod.example/expenses/1> <https://schema.org/image> <https://pod.example/receipts/1.png> .\n"
+				+ "}", ExpensePatcher.sparqlUpdate(Set.of(), Set.of(image)));
+		assertEquals("", ExpensePatcher.sparqlUpdate(Set.of(), Set.of()));
+	}
+
+	@Test
+	void escapesLiterals() {
+		final Triple description = rdf.createTriple(rdf.createIRI("https://pod.example/expenses/1"),
+				rdf.createIRI("https://schema.org/description"), rdf.createLiteral("Lunch \"with\" team\nand guests"));
+		assertEquals("INSERT DATA {\n"
+				+ "<https://pod.example/expenses/1> <https://schema.org/description> \"Lunch \\\"with\\\" team\\nand guests\" .\n"
+				+ "}", ExpensePatcher.sparqlUpdate(Set.of(), Set.of(description)));
+	}
+
+	@Test
+	void patchesAgainstTheCachedVersion() {
+		when(expenseCache.cached(EXPENSE)).thenReturn(new ExpenseCache.Versioned(expense("Lunch"), "\"v1\""));
+		respond(response(205));
+
+		patcher.update(expense("Dinner"), null);
+
+		final List<Request> requests = requests(1);
+		assertEquals("PATCH", requests.get(0).method());
+		assertEquals(Optional.of("\"v1\""), requests.get(0).headers().firstValue("If-Match"));
+		verify(expenseCache).invalidate(EXPENSE);
+	}
+
+	@Test
+	void putsWhenTheClientsVersionIsNotCached() {
+		when(expenseCache.cached(EXPENSE)).thenReturn(new ExpenseCache.Versioned(expense("Lunch"), "\"v1\""));
+		respond(response(205));
+
+		patcher.update(expense("Dinner"), "\"v0\"");
+
+		final List<Request> requests = requests(1);
+		assertEquals("PUT", requests.get(0).method());
+		assertEquals(Optional.of("\"v0\""), requests.get(0).headers().firstValue("If-Match"));
+	}
+
+	@Test
+	void retriesA412WhileTheDeletedTriplesAreThere() {
+		when(expenseCache.cached(EXPENSE)).thenReturn(new ExpenseCache.Versioned(expense("Lunch"), "\"v1\""));
+		final Expense changedElsewhere = expense("Lunch");
+		changedElsewhere.setCategory("Meals");
+		when(expenseCache.readVersioned(EXPENSE)).thenReturn(new ExpenseCache.Versioned(changedElsewhere, "\"v2\""));
+		respond(response(412), response(205));
+
+		patcher.update(expense("Dinner"), null);
+
+		final List<Request> requests = requests(2);
+		assertEquals(Optional.of("\"v2\""), requests.get(1).headers().firstValue("If-Match"));
+	}
+
+	@Test
+	void surfacesA412OnceTheDeltaNoLongerApplies() {
+		when(expenseCache.cached(EXPENSE)).thenReturn(new ExpenseCache.Versioned(expense("Lunch"), "\"v1\""));
+		when(expenseCache.readVersioned(EXPENSE)).thenReturn(new ExpenseCache.Versioned(expense("Brunch"), "\"v2\""));
+		respond(response(412));
+
+		assertThrows(PreconditionFailedException.class, () -> patcher.update(expense("Dinner"), null));
+		requests(1);
+	}
+
+	@Test
+	void surfacesA412AgainstTheClientsIfMatch() {
+		when(expenseCache.cached(EXPENSE)).thenReturn(new ExpenseCache.Versioned(expense("Lunch"), "\"v1\""));
+		respond(response(412));
+
+		assertThrows(PreconditionFailedException.class, () -> patcher.update(expense("Dinner"), "\"v1\""));
+		requests(1);
+		verify(expenseCache, never()).readVersioned(any());
+	}
+
+	@Test
+	void addsReceiptsOnlyToExistingExpenses() {
+		respond(response(412));
+
+		assertThrows(NotFoundException.class, () -> patcher.addReceipt(EXPENSE, "https://pod.example/receipts/1.png"));
+		assertEquals(Optional.of("*"), requests(1).get(0).headers().firstValue("If-Match"));
+	}
+
+	private List<Request> requests(int count) {
+		final ArgumentCaptor<Request> requests = ArgumentCaptor.forClass(Request.class);
+		verify(client, times(count)).send(requests.capture(), any());
+		return requests.getAllValues();
+	}
+
+	private void respond(Response<?> first, Response<?>... more) {
+		doReturn(first, (Object[]) more).when(client).send(any(), any());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Response<byte[]> response(int status) {
+		final Response<byte[]> response = mock(Response.class);
+		when(response.statusCode()).thenReturn(status);
+		when(response.headers()).thenReturn(mock(Headers.class));
+		when(response.body()).thenReturn("".getBytes(StandardCharsets.UTF_8));
+		return response;
+	}
+
+	private static Expense expense(String description) {
+		return new Expense(EXPENSE, "Merchant", new Date(0), description, new BigDecimal("10.00"), "EUR",
+				"Travel", new String[0]);
+	}
+
+	private static Triple triple(String predicate, String object) {
+		return rdf.createTriple(rdf.createIRI("https://pod.example/expenses/1"), rdf.createIRI(predicate),
+				rdf.createIRI(object));
+	}
+
+	private static Set<Triple> set(Triple... triples) {
+		return new LinkedHashSet<>(List.of(triples));
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.example.gettingstarted;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseTests {
+
+	private static final String FIRST = "https://pod.example/receipts/1.png";
+	private static final String SECOND = "https://pod.example/receipts/2.png";
+
+	@Test
+	void receiptsWriteThrough() {
+		final Expense expense = expense(FIRST);
+		final Set<String> receipts = expense.getReceipts();
+
+		assertTrue(receipts.add(SECOND));
+		assertEquals(Set.of(FIRST, SECOND), expense.getReceipts());
+		assertTrue(receipts.remove(FIRST));
+		assertFalse(receipts.remove(FIRST));
+		assertEquals(Set.of(SECOND), expense.getReceipts());
+
+		final Iterator<String> iterator = receipts.iterator();
+		iterator.next();
+		iterator.remove();
+		assertTrue(expense.getReceipts().isEmpty());
+	}
+
+	@Test
+	void gettersSeeTheSetters() {
+		final Expense expense = expense(FIRST);
+		assertEquals("Lunch", expense.getDescription());
+
+		expense.setDescription("Dinner");
+		expense.setExpenseDate(null);
+
+		assertEquals("Dinner", expense.getDescription());
+		assertNull(expense.getExpenseDate());
+	}
+
+	private static Expense expense(String... receipts) {
+		return new Expense(URI.create("https://pod.example/expenses/1"), "Merchant", new Date(0), "Lunch",
+				new BigDecimal("10.00"), "EUR", "Travel", receipts);
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Request;
+import com.inrupt.client.auth.Credential;
+import com.inrupt.client.auth.Session;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ManagedSessionTests {
+
+	private static final URI ISSUER = URI.create("https://login.example");
+	private static final Request POD_REQUEST = Request.newBuilder(URI.create("https://pod.example/expenses/1")).GET().build();
+
+	private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+	private final Deque<Session> sessions = new ArrayDeque<>();
+	private final AtomicInteger created = new AtomicInteger();
+	// Retries and scheduled refreshes are far enough out that only the refreshes a test starts run.
+	private final ManagedSession managed = new ManagedSession(() -> {
+		created.incrementAndGet();
+		return sessions.remove();
+	}, ISSUER, Duration.ofMinutes(1), Duration.ofHours(1), new SimpleMeterRegistry(), clock);
+
+	@AfterEach
+	void close() {
+		managed.close();
+	}
+
+	@Test
+	void concurrentRefreshesShareOneTokenRequest() throws Exception {
+		final CompletableFuture<Optional<Credential>> token = new CompletableFuture<>();
+		final Session session = session(token);
+		final Credential credential = mock(Credential.class);
+
+		final CompletableFuture<ManagedSession.Current> first = managed.refresh();
+		final CompletableFuture<ManagedSession.Current> second = managed.refresh();
+		final CompletionStage<Optional<Credential>> unauthorized = managed.authenticate(null, POD_REQUEST, Set.of());
+		assertSame(first, second);
+		token.complete(Optional.of(credential));
+
+		assertSame(credential, first.get(5, TimeUnit.SECONDS).credential());
+		assertSame(session, first.get().session());
+		assertSame(credential, unauthorized.toCompletableFuture().get(5, TimeUnit.SECONDS).orElseThrow());
+		assertEquals(1, created.get());
+		verify(session).authenticate(any(), any(), any());
+	}
+
+	@Test
+	void handsOutARecentTokenInsteadOfRefreshing() throws Exception {
+		final Credential first = mock(Credential.class);
+		final Credential second = mock(Credential.class);
+		session(CompletableFuture.completedFuture(Optional.of(first)));
+		session(CompletableFuture.completedFuture(Optional.of(second)));
+		managed.refresh().get(5, TimeUnit.SECONDS);
+
+		clock.advance(Duration.ofSeconds(2));
+		assertSame(first, managed.authenticate(null, POD_REQUEST, Set.of()).toCompletableFuture().get().orElseThrow());
+		assertEquals(1, created.get());
+
+		clock.advance(Duration.ofSeconds(10));
+		assertSame(second, managed.authenticate(null, POD_REQUEST, Set.of()).toCompletableFuture()
+				.get(5, TimeUnit.SECONDS).orElseThrow());
+		assertEquals(2, created.get());
+	}
+
+	@Test
+	void aFailedRefreshLetsTheNextOneStart() throws Exception {
+		final Credential credential = mock(Credential.class);
+		session(CompletableFuture.failedFuture(new IllegalStateException("identity provider down")));
+		session(CompletableFuture.completedFuture(Optional.of(credential)));
+
+		final CompletableFuture<ManagedSession.Current> failed = managed.refresh();
+		final ExecutionException failure = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+		assertTrue(failure.getCause() instanceof IllegalStateException, String.valueOf(failure.getCause()));
+
+		final CompletableFuture<ManagedSession.Current> retried = managed.refresh();
+		assertNotSame(failed, retried);
+		assertSame(credential, retried.get(5, TimeUnit.SECONDS).credential());
+		assertEquals(2, created.get());
+	}
+
+	private Session session(CompletableFuture<Optional<Credential>> token) {
+		final Session session = mock(Session.class);
+		when(session.authenticate(any(), any(), any())).thenReturn(token);
+		sessions.add(session);
+		return session;
+	}
+
+}
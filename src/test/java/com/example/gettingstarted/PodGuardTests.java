@@ -0,0 +1,99 @@
+package com.example.gettingstarted;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PodGuardTests {
+
+	private static final String HOST = "pod.example";
+	private static final Duration OPEN_FOR = Duration.ofMillis(100);
+
+	private final PodGuard guard = new PodGuard(new PodGuard.Settings(true, 2, 1, 10, 0.5, 4, OPEN_FOR),
+			new SimpleMeterRegistry());
+
+	@Test
+	void refusesRequestsOverTheLimit() {
+		final PodGuard.Permit first = guard.acquire(HOST);
+		guard.acquire(HOST);
+
+		final PodOverloadedException refused = assertThrows(PodOverloadedException.class, () -> guard.acquire(HOST));
+		assertEquals(429, refused.getStatus());
+		assertEquals(HOST, refused.getHost());
+
+		first.release(false);
+		guard.acquire(HOST);
+	}
+
+	@Test
+	void limitsHostsSeparately() {
+		guard.acquire(HOST);
+		guard.acquire(HOST);
+		guard.acquire("other.example");
+		assertEquals(2, guard.limit(HOST));
+		assertEquals(2, guard.limit("other.example"));
+		assertEquals(0, guard.limit("unused.example"));
+	}
+
+	@Test
+	void failuresShrinkTheLimit() {
+		guard.acquire(HOST).release(true);
+		assertEquals(1, guard.limit(HOST));
+	}
+
+	@Test
+	void opensTheBreakerWhenTooManyRequestsFail() {
+		guard.acquire(HOST).release(false);
+		guard.acquire(HOST).release(true);
+		guard.acquire(HOST).release(false);
+		guard.acquire(HOST).release(true);
+
+		final PodOverloadedException refused = assertThrows(PodOverloadedException.class, () -> guard.acquire(HOST));
+		assertEquals(503, refused.getStatus());
+		assertTrue(refused.getRetryAfter().compareTo(OPEN_FOR) <= 0);
+	}
+
+	@Test
+	void closesTheBreakerWhenTheProbeSucceeds() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_FOR.toMillis() * 2);
+
+		final PodGuard.Permit probe = guard.acquire(HOST);
+		assertEquals(503, assertThrows(PodOverloadedException.class, () -> guard.acquire(HOST)).getStatus());
+		probe.release(false);
+
+		guard.acquire(HOST).release(false);
+		guard.acquire(HOST).release(true);
+		guard.acquire(HOST).release(false);
+		guard.acquire(HOST).release(false);
+	}
+
+	@Test
+	void reopensTheBreakerWhenTheProbeFails() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_FOR.toMillis() * 2);
+
+		guard.acquire(HOST).release(true);
+		assertEquals(503, assertThrows(PodOverloadedException.class, () -> guard.acquire(HOST)).getStatus());
+	}
+
+	@Test
+	void admitsEverythingWhenDisabled() {
+		final PodGuard disabled = new PodGuard(new PodGuard.Settings(false, 1, 1, 1, 0.5, 1, OPEN_FOR), null);
+		for (int i = 0; i < 10; i++) disabled.acquire(HOST).release(true);
+		disabled.acquire(HOST);
+		disabled.acquire(HOST);
+		assertEquals(0, disabled.limit(HOST));
+	}
+
+	private void open() {
+		for (int i = 0; i < 4; i++) guard.acquire(HOST).release(true);
+		assertEquals(503, assertThrows(PodOverloadedException.class, () -> guard.acquire(HOST)).getStatus());
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.example.gettingstarted;
+
+import com.inrupt.client.Client;
+import com.inrupt.client.Request;
+import com.inrupt.client.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PodTransportTests {
+
+	private final MockWebServer server = new MockWebServer();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	// One request at a time per host; the breaker opens once half of the last two requests failed.
+	private final PodGuard guard = new PodGuard(new PodGuard.Settings(true, 1, 1, 1, 0.5, 2, Duration.ofMinutes(1)),
+			registry);
+	private PodTransport transport;
+
+	@AfterEach
+	void close() throws IOException {
+		if (transport != null) transport.close();
+		server.shutdown();
+	}
+
+	@Test
+	void releasesThePermitOnceTheBodyIsRead() throws Exception {
+		server.enqueue(new MockResponse().setBody("first"));
+		server.enqueue(new MockResponse().setBody("second"));
+		final Client client = open(true);
+
+		// With a limit of one, the second request is only admitted if the first gave its permit back.
+		assertEquals("first", get(client).body());
+		assertEquals("second", get(client).body());
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	void refusesRequestsOnceTheHostKeepsFailing() throws Exception {
+		server.enqueue(new MockResponse().setResponseCode(500));
+		server.enqueue(new MockResponse().setResponseCode(500));
+		final Client client = open(true);
+
+		assertEquals(500, get(client).statusCode());
+		assertEquals(500, get(client).statusCode());
+		final ExecutionException failure = assertThrows(ExecutionException.class, () -> get(client));
+
+		final PodOverloadedException refused = PodOverloadedException.find(failure);
+		assertNotNull(refused, String.valueOf(failure.getCause()));
+		assertEquals(503, refused.getStatus());
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	void asksForCompressedBodiesUnlessCompressionIsOff() throws Exception {
+		server.enqueue(new MockResponse());
+		server.enqueue(new MockResponse());
+
+		get(open(true));
+		assertEquals("gzip", server.takeRequest().getHeader("Accept-Encoding"));
+		transport.close();
+		get(open(false));
+		assertEquals("identity", server.takeRequest().getHeader("Accept-Encoding"));
+	}
+
+	private Client open(boolean compression) {
+		transport = new PodTransport(new PodTransport.Settings(true, 16, 4, 2, Duration.ofMinutes(1),
+				Duration.ofSeconds(5), Duration.ofSeconds(5), false, compression), guard, registry);
+		return transport.client();
+	}
+
+	private Response<String> get(Client client) throws Exception {
+		final URI uri = server.url("/expenses/1").uri();
+		return client.send(Request.newBuilder(uri).GET().build(), Response.BodyHandlers.ofString())
+				.toCompletableFuture().get(5, TimeUnit.SECONDS);
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.example.gettingstarted;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTests {
+
+	private final AtomicInteger joined = new AtomicInteger();
+	private final SingleFlight<String, Object> flight = new SingleFlight<>(joined::incrementAndGet);
+
+	@Test
+	void overlappingCallsShareOneResult() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final Object result = new Object();
+		final CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> flight.sync("key", () -> {
+			calls.incrementAndGet();
+			await(release);
+			return result;
+		}));
+		awaitStarted(calls);
+		final CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> flight.sync("key", () -> {
+			calls.incrementAndGet();
+			return new Object();
+		}));
+		awaitJoined(1);
+		release.countDown();
+
+		assertSame(result, first.get(5, TimeUnit.SECONDS));
+		assertSame(result, second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, calls.get());
+		assertEquals(1, flight.coalesced());
+		assertEquals(1, joined.get());
+	}
+
+	@Test
+	void callsAfterCompletionStartAgain() {
+		final Object first = flight.sync("key", Object::new);
+		final Object second = flight.sync("key", Object::new);
+		assertNotSame(first, second);
+		assertEquals(0, flight.coalesced());
+	}
+
+	@Test
+	void joinedCallersGetTheException() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> flight.sync("key", () -> {
+			calls.incrementAndGet();
+			await(release);
+			throw new IllegalStateException("failed");
+		}));
+		awaitStarted(calls);
+		final CompletableFuture<Throwable> second = CompletableFuture.supplyAsync(() ->
+				assertThrows(IllegalStateException.class, () -> flight.sync("key", Object::new)));
+		awaitJoined(1);
+		release.countDown();
+
+		assertEquals("failed", second.get(5, TimeUnit.SECONDS).getMessage());
+		assertTrue(first.handle((result, failure) -> failure.getCause() instanceof IllegalStateException).get());
+	}
+
+	@Test
+	void joinedCallersGetAnError() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final Thread first = new Thread(() -> {
+			try {
+				flight.sync("key", () -> {
+					calls.incrementAndGet();
+					await(release);
+					throw new AssertionError("error");
+				});
+			} catch (AssertionError expected) {
+				// The calling thread gets the Error as well.
+			}
+		});
+		first.start();
+		awaitStarted(calls);
+		final CompletableFuture<Throwable> second = CompletableFuture.supplyAsync(() ->
+				assertThrows(AssertionError.class, () -> flight.sync("key", Object::new)));
+		awaitJoined(1);
+		release.countDown();
+
+		assertEquals("error", second.get(5, TimeUnit.SECONDS).getMessage());
+		first.join(5000);
+		assertSame(Boolean.TRUE, flight.sync("key", () -> Boolean.TRUE));
+	}
+
+	@Test
+	void forgetLetsTheNextCallerStartANewCall() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> flight.sync("key", () -> {
+			calls.incrementAndGet();
+			await(release);
+			return "stale";
+		}));
+		awaitStarted(calls);
+		flight.forget("key");
+
+		assertEquals("fresh", flight.sync("key", () -> "fresh"));
+		release.countDown();
+		assertEquals("stale", first.get(5, TimeUnit.SECONDS));
+		assertEquals(0, flight.coalesced());
+	}
+
+	@Test
+	void asyncCallsShareOneFuture() throws Exception {
+		final CompletableFuture<Object> pending = new CompletableFuture<>();
+		final AtomicInteger calls = new AtomicInteger();
+		final CompletableFuture<Object> first = flight.async("key", () -> {
+			calls.incrementAndGet();
+			return pending;
+		});
+		final CompletableFuture<Object> second = flight.async("key", () -> {
+			calls.incrementAndGet();
+			return new CompletableFuture<>();
+		});
+		assertSame(first, second);
+		pending.complete("done");
+
+		assertEquals("done", second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, calls.get());
+		assertEquals(1, flight.coalesced());
+		assertNotSame(first, flight.async("key", () -> CompletableFuture.completedFuture("again")));
+	}
+
+	@Test
+	void asyncFailuresAreUnwrapped() {
+		final CompletableFuture<Object> failed = flight.async("key",
+				() -> CompletableFuture.supplyAsync(() -> { throw new IllegalStateException("failed"); }));
+		final Throwable failure = failed.handle((result, e) -> e).join();
+		assertTrue(failure instanceof IllegalStateException, String.valueOf(failure));
+	}
+
+	private void awaitStarted(AtomicInteger calls) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (calls.get() == 0 && System.nanoTime() < deadline) Thread.sleep(1);
+		assertEquals(1, calls.get());
+	}
+
+	private void awaitJoined(long callers) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (flight.coalesced() < callers && System.nanoTime() < deadline) Thread.sleep(1);
+		assertEquals(callers, flight.coalesced());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
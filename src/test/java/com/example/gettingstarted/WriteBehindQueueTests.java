@@ -0,0 +1,176 @@
+package com.example.gettingstarted;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inrupt.client.solid.SolidClientException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class WriteBehindQueueTests {
+
+	private static final URI FIRST = URI.create("https://pod.example/expenses/1");
+	private static final URI SECOND = URI.create("https://pod.example/expenses/2");
+	private static final URI THIRD = URI.create("https://pod.example/expenses/3");
+
+	private final ExpensePatcher expensePatcher = mock(ExpensePatcher.class);
+	private final ExpenseChangeTracker expenseChanges = mock(ExpenseChangeTracker.class);
+	private final ExpenseCache expenseCache = mock(ExpenseCache.class);
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final List<WriteBehindQueue> queues = new ArrayList<>();
+
+	@TempDir
+	Path directory;
+
+	@AfterEach
+	void closeQueues() throws Exception {
+		for (WriteBehindQueue queue : queues) queue.close();
+	}
+
+	@Test
+	void mergesUpdatesUntilTheyAreWritten() throws IOException {
+		final WriteBehindQueue queue = open(directory.resolve("write-behind.log"));
+		queue.enqueue(expense(FIRST, "first"));
+		final Expense merged = queue.enqueue(expense(FIRST, "second"));
+
+		assertEquals("second", merged.getDescription());
+		assertEquals(1, queue.pendingCount());
+		assertEquals("second", queue.pending(FIRST).getDescription());
+		assertNull(queue.pending(SECOND));
+		// Nothing is reported until the update reached the Pod.
+		verifyNoInteractions(expenseChanges);
+		verifyNoInteractions(expensePatcher);
+	}
+
+	@Test
+	void reportsUpdatesOnceWrittenWithTheCachedETag() throws Exception {
+		when(expenseCache.cached(FIRST)).thenReturn(new ExpenseCache.Versioned(expense(FIRST, "read"), "\"v1\""));
+		final WriteBehindQueue queue = open(directory.resolve("write-behind.log"));
+		queue.enqueue(expense(FIRST, "first"));
+		queue.enqueue(expense(FIRST, "second"));
+
+		// Closing writes whatever is pending.
+		close(queue);
+
+		verify(expensePatcher).update(any(), eq("\"v1\""));
+		verify(expenseChanges).saved(any());
+		assertEquals(0, queue.pendingCount());
+	}
+
+	@Test
+	void dropsUpdatesThePodRejects() throws Exception {
+		when(expensePatcher.update(any(), any())).thenThrow(SolidClientException.handle("changed", FIRST, 412, null, ""));
+		final WriteBehindQueue queue = open(directory.resolve("write-behind.log"));
+		queue.enqueue(expense(FIRST, "first"));
+
+		close(queue);
+
+		// Without a cached version the update may only overwrite an existing Expense.
+		verify(expensePatcher).update(any(), eq("*"));
+		verify(expenseChanges, never()).saved(any());
+		assertEquals(0, queue.pendingCount());
+	}
+
+	@Test
+	void addsReceiptsToThePendingUpdate() throws IOException {
+		final Path file = directory.resolve("write-behind.log");
+		final WriteBehindQueue queue = open(file);
+		queue.enqueue(expense(FIRST, "first"));
+		queue.addReceipt(FIRST, "https://pod.example/receipts/1.png");
+		queue.addReceipt(SECOND, "https://pod.example/receipts/2.png");
+
+		assertTrue(queue.pending(FIRST).getReceipts().contains("https://pod.example/receipts/1.png"));
+		assertNull(queue.pending(SECOND));
+		assertTrue(open(file).pending(FIRST).getReceipts().contains("https://pod.example/receipts/1.png"));
+	}
+
+	@Test
+	void replaysPendingUpdatesOnLoad() throws IOException {
+		final Path file = directory.resolve("write-behind.log");
+		final WriteBehindQueue queue = open(file);
+		queue.enqueue(expense(FIRST, "first"));
+		queue.enqueue(expense(SECOND, "other"));
+		queue.enqueue(expense(FIRST, "second"));
+		queue.enqueue(expense(THIRD, "deleted"));
+		queue.discard(THIRD);
+
+		// Replayed without closing the first queue, as after a crash.
+		final WriteBehindQueue replayed = open(file);
+		assertEquals(2, replayed.pendingCount());
+		assertEquals("second", replayed.pending(FIRST).getDescription());
+		assertEquals("other", replayed.pending(SECOND).getDescription());
+		assertNull(replayed.pending(THIRD));
+	}
+
+	@Test
+	void ignoresAPartialLastRecord() throws IOException {
+		final Path file = directory.resolve("write-behind.log");
+		final WriteBehindQueue queue = open(file);
+		queue.enqueue(expense(FIRST, "first"));
+		// A crash mid-append: the op byte of an update and the start of its sequence number.
+		Files.write(file, new byte[] {1, 0, 0}, StandardOpenOption.APPEND);
+
+		final WriteBehindQueue replayed = open(file);
+		assertEquals(1, replayed.pendingCount());
+		assertEquals("first", replayed.pending(FIRST).getDescription());
+	}
+
+	@Test
+	void compactsTheJournal() throws IOException {
+		final Path file = directory.resolve("write-behind.log");
+		final WriteBehindQueue queue = open(file);
+		queue.enqueue(expense(FIRST, "0000"));
+		final long oneRecord = Files.size(file);
+		for (int i = 1; i < 1500; i++) {
+			queue.enqueue(expense(FIRST, String.format("%04d", i)));
+		}
+
+		// Without compaction the journal would hold 1500 records; it is rewritten once it passes 2 * 1 + 1000.
+		assertTrue(Files.size(file) < 1003 * oneRecord, "journal size " + Files.size(file));
+		final WriteBehindQueue replayed = open(file);
+		assertEquals(1, replayed.pendingCount());
+		assertEquals("1499", replayed.pending(FIRST).getDescription());
+	}
+
+	private void close(WriteBehindQueue queue) throws Exception {
+		queues.remove(queue);
+		queue.close();
+	}
+
+	private WriteBehindQueue open(Path file) throws IOException {
+		// A window long enough that nothing is flushed while the test runs.
+		final WriteBehindQueue queue = new WriteBehindQueue(expensePatcher, expenseChanges, expenseCache, objectMapper, true,
+				file.toString(), Duration.ofHours(1), 1);
+		queues.add(queue);
+		queue.load();
+		return queue;
+	}
+
+	private static Expense expense(URI identifier, String description) {
+		return new Expense(identifier, "Merchant", new Date(0), description, new BigDecimal("10.00"), "EUR",
+				"Travel", new String[0]);
+	}
+
+}